@@ -0,0 +1,98 @@
+package ru.romanow.state.machine.benchmark;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.statemachine.StateMachine;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.cashflow.CashFlowStates;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+
+/**
+ * Пропускная способность {@code acquireStateMachine} при разном числе потоков. Каждый поток берет
+ * случайный расчет из набора, чтение из БД имитируется задержкой {@code readLatencyMicros}.
+ * При глобальной блокировке throughput не растет с числом потоков, при блокировке по machineId –
+ * растет почти линейно, пока потоки не начинают попадать в одни и те же расчеты.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AcquireContentionBenchmark {
+
+    @Param({ "0", "500" })
+    private long readLatencyMicros;
+
+    @Param({ "4096" })
+    private int calculations;
+
+    private AnnotationConfigApplicationContext context;
+    private CashFlowStateMachineService stateMachineService;
+    private String[] machineIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkConfiguration.createContext();
+        context.getBean(InMemoryCalculationStatusService.class)
+               .setLatency(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(readLatencyMicros)));
+        stateMachineService = context.getBean(CashFlowStateMachineService.class);
+
+        machineIds = new String[calculations];
+        for (int i = 0; i < calculations; i++) {
+            machineIds[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stateMachineService.destroy();
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public StateMachine<CashFlowStates, CashFlowEvents> acquire01Thread() {
+        return acquire();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public StateMachine<CashFlowStates, CashFlowEvents> acquire04Threads() {
+        return acquire();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public StateMachine<CashFlowStates, CashFlowEvents> acquire16Threads() {
+        return acquire();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public StateMachine<CashFlowStates, CashFlowEvents> acquire64Threads() {
+        return acquire();
+    }
+
+    private StateMachine<CashFlowStates, CashFlowEvents> acquire() {
+        final var machineId = machineIds[ThreadLocalRandom.current().nextInt(machineIds.length)];
+        return stateMachineService.acquireStateMachine(machineId);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.romanow.state.machine.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.statemachine.StateMachine;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
+import ru.romanow.state.machine.service.StateMachineService;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Латентность {@code acquireStateMachine} на холодном и прогретом реестре (БД в памяти без задержки).
+ * У всех расчетов в истории есть переходы: Cash Flow на три шага, VSSDV – на первый шаг каждой модели, т.е. в регионах.
+ * <ul>
+ *     <li>{@code cold} – State Machine нет в реестре: создание, восстановление и запуск. Чтобы следующий acquire
+ *     тоже был холодным, State Machine сразу освобождается, release (остановка) входит в замер;</li>
+ *     <li>{@code warm} – State Machine в реестре и актуальна: поиск в реестре и чтение версии из БД;</li>
+ *     <li>{@code stale} – State Machine в реестре, но {@code restore-policy: always}: восстановление
+ *     на каждый acquire.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AcquireRestoreBenchmark {
+
+    @Param({ "spring", "table" })
+    private String engine;
+
+    @Param({ "cashflow", "vssdv" })
+    private String type;
+
+    @Param({ "cold", "warm", "stale" })
+    private String path;
+
+    @Param({ "1024" })
+    private int calculations;
+
+    private AnnotationConfigApplicationContext context;
+    private StateMachineService<?, ?> stateMachineService;
+    private String[] machineIds;
+    private boolean cold;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cold = "cold".equals(path);
+        context = BenchmarkConfiguration.createContext(Map.of(
+                "state-machine.engine", engine,
+                "state-machine.restore-policy", "stale".equals(path) ? "always" : "version"));
+
+        final Consumer<String> advance;
+        if ("cashflow".equals(type)) {
+            final var service = context.getBean(CashFlowStateMachineService.class);
+            final var events = List.of(CashFlowEvents.DATA_PREPARED_EVENT,
+                                       CashFlowEvents.DATA_COPIED_TO_STAGED_EVENT,
+                                       CashFlowEvents.ETL_START_EVENT);
+            advance = machineId -> service.sendEvents(machineId, events);
+            stateMachineService = service;
+        } else {
+            final var service = context.getBean(VssdvStateMachineService.class);
+            final var events = VssdvModel.models()
+                                         .stream()
+                                         .map(model -> model.events().get(0))
+                                         .collect(toList());
+            advance = machineId -> service.sendEvents(machineId, events);
+            stateMachineService = service;
+        }
+
+        machineIds = new String[calculations];
+        for (int i = 0; i < calculations; i++) {
+            machineIds[i] = UUID.randomUUID().toString();
+            advance.accept(machineIds[i]);
+            if (cold) {
+                stateMachineService.releaseStateMachine(machineIds[i]);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StateMachine<?, ?> acquire() {
+        final var machineId = machineIds[next++ % machineIds.length];
+        final var stateMachine = stateMachineService.acquireStateMachine(machineId);
+        if (cold) {
+            stateMachineService.releaseStateMachine(machineId);
+        }
+        return stateMachine;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.romanow.state.machine.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.statemachine.config.StateMachineFactory;
+import ru.romanow.state.machine.config.StateMachineConfiguration;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.cashflow.CashFlowStates;
+import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvStates;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.TransitionAuditLog;
+import ru.romanow.state.machine.service.cashflow.CashFlowCustomStateMachinePersist;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+import ru.romanow.state.machine.service.vssdv.VssdvCustomStateMachinePersist;
+import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
+
+/**
+ * Минимальный контекст без БД и web: конфигурация State Machine + сервисы поверх хранилища в памяти.
+ */
+@Configuration
+@Import(StateMachineConfiguration.class)
+public class BenchmarkConfiguration {
+
+    public static AnnotationConfigApplicationContext createContext() {
+        return new AnnotationConfigApplicationContext(BenchmarkConfiguration.class);
+    }
+
+    // Свойства state-machine.* поверх значений по умолчанию, например движок
+    public static AnnotationConfigApplicationContext createContext(@NotNull Map<String, Object> properties) {
+        final var context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.register(BenchmarkConfiguration.class);
+        context.refresh();
+        return context;
+    }
+
+    @Bean
+    public InMemoryCalculationStatusService calculationStatusService() {
+        return new InMemoryCalculationStatusService();
+    }
+
+    @Bean
+    public StateMachineMetrics stateMachineMetrics() {
+        return new StateMachineMetrics(new SimpleMeterRegistry());
+    }
+
+    @Bean
+    @Autowired
+    public TransitionAuditLog transitionAuditLog(StateMachineProperties stateMachineProperties) {
+        return new TransitionAuditLog(stateMachineProperties);
+    }
+
+    @Bean
+    public CashFlowCustomStateMachinePersist cashFlowCustomStateMachinePersist(
+            InMemoryCalculationStatusService calculationStatusService,
+            TransitionAuditLog transitionAuditLog,
+            StateMachineMetrics stateMachineMetrics
+    ) {
+        return new CashFlowCustomStateMachinePersist(
+                calculationStatusService, transitionAuditLog, stateMachineMetrics);
+    }
+
+    @Bean
+    @Autowired
+    public CashFlowStateMachineService cashFlowStateMachineService(
+            CashFlowCustomStateMachinePersist cashFlowCustomStateMachinePersist,
+            StateMachineFactory<CashFlowStates, CashFlowEvents> stateMachineFactory,
+            StateMachineProperties stateMachineProperties,
+            StateMachineMetrics stateMachineMetrics
+    ) {
+        return new CashFlowStateMachineService(
+                cashFlowCustomStateMachinePersist, stateMachineFactory, stateMachineProperties, stateMachineMetrics);
+    }
+
+    @Bean
+    public VssdvCustomStateMachinePersist vssdvCustomStateMachinePersist(
+            InMemoryCalculationStatusService calculationStatusService,
+            TransitionAuditLog transitionAuditLog,
+            StateMachineMetrics stateMachineMetrics
+    ) {
+        return new VssdvCustomStateMachinePersist(
+                calculationStatusService, transitionAuditLog, stateMachineMetrics);
+    }
+
+    @Bean
+    @Autowired
+    public VssdvStateMachineService vssdvStateMachineService(
+            VssdvCustomStateMachinePersist vssdvCustomStateMachinePersist,
+            StateMachineFactory<VssdvStates, VssdvEvents> stateMachineFactory,
+            StateMachineProperties stateMachineProperties,
+            StateMachineMetrics stateMachineMetrics
+    ) {
+        return new VssdvStateMachineService(
+                vssdvCustomStateMachinePersist, stateMachineFactory, stateMachineProperties, stateMachineMetrics);
+    }
+}
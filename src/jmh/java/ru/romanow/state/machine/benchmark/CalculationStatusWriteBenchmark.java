@@ -0,0 +1,119 @@
+package ru.romanow.state.machine.benchmark;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.romanow.state.machine.config.DatabaseConfiguration;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.domain.Calculation;
+import ru.romanow.state.machine.domain.enums.CalculationType;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
+import ru.romanow.state.machine.repostitory.CalculationRepository;
+import ru.romanow.state.machine.service.CalculationServiceImpl;
+import ru.romanow.state.machine.service.CalculationStatusService;
+import ru.romanow.state.machine.service.CalculationStatusServiceImpl;
+
+import static ru.romanow.state.machine.models.cashflow.CashFlowStates.DATA_PREPARED;
+
+/**
+ * Запись истории переходов в Postgres (datasource из application.yml, т.е. {@code docker compose up postgres}).
+ * <ul>
+ *     <li>{@code single} – каждая запись своей транзакцией, как при синхронной записи перехода;</li>
+ *     <li>{@code batch} – {@code rows} записей одной транзакцией, как sendEvents или group commit.</li>
+ * </ul>
+ * Время – на одну пачку из {@code rows} записей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CalculationStatusWriteBenchmark {
+    // state_code Cash Flow – один байт с кодом состояния
+    private static final byte[] STATE_CODE = { (byte) DATA_PREPARED.code() };
+
+    @Param({ "single", "batch" })
+    private String mode;
+
+    @Param({ "1", "16", "64" })
+    private int rows;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private CalculationStatusService calculationStatusService;
+    private Calculation calculation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DatabaseBenchmarkConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        calculationStatusService = context.getBean(CalculationStatusService.class);
+        calculation = context
+                .getBean(CalculationRepository.class)
+                .save(new Calculation()
+                              .setUid(UUID.randomUUID())
+                              .setName("Benchmark")
+                              .setType(CalculationType.CASH_FLOW));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        final var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM calculation_status WHERE calculation_id = ?", calculation.getId());
+        jdbcTemplate.update("DELETE FROM calculation WHERE id = ?", calculation.getId());
+        context.close();
+    }
+
+    @Benchmark
+    public void write() {
+        final var statuses = new ArrayList<CalculationStatusRecord>(rows);
+        for (int i = 0; i < rows; i++) {
+            statuses.add(new CalculationStatusRecord(
+                    calculation.getUid(), STATE_CODE, version.incrementAndGet()));
+        }
+        if ("batch".equals(mode)) {
+            calculationStatusService.create(statuses);
+        } else {
+            statuses.forEach(calculationStatusService::create);
+        }
+    }
+
+    /**
+     * Только JPA: без State Machine, web и сканирования пакета (в нем лежит {@link BenchmarkConfiguration}).
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Calculation.class)
+    @EnableJpaRepositories(basePackageClasses = CalculationRepository.class)
+    @EnableConfigurationProperties(StateMachineProperties.class)
+    @Import({ DatabaseConfiguration.class, CalculationServiceImpl.class, CalculationStatusServiceImpl.class })
+    static class DatabaseBenchmarkConfiguration {
+    }
+}
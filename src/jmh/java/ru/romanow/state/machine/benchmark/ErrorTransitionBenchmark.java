@@ -0,0 +1,108 @@
+package ru.romanow.state.machine.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.StateMachineEventResult;
+import org.springframework.statemachine.config.StateMachineBuilder;
+import reactor.core.publisher.Mono;
+import ru.romanow.state.machine.config.VssdvStateMachineDefinition;
+import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
+import ru.romanow.state.machine.models.vssdv.VssdvModelEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvStates;
+
+/**
+ * Стоимость сопоставления события с переходами Spring State Machine VSSDV: на каждое событие перебираются все
+ * переходы, поэтому она растет с их числом. Событие не принимается, т.е. перебор идет до конца.
+ * <ul>
+ *     <li>{@code per-state} – переход в {@code CALCULATION_ERROR} из каждого состояния, включая состояния регионов
+ *     и конечные, как было раньше (105 переходов);</li>
+ *     <li>{@code any-state} – только из состояний верхнего уровня, в которых State Machine ждет события,
+ *     регионы покрывает переход из {@code CALCULATION_STARTED} (68 переходов).</li>
+ * </ul>
+ * {@code regions} – State Machine в регионах моделей, {@code main} – после join.
+ * State Machine собирается {@link StateMachineBuilder} по {@link VssdvStateMachineDefinition}, как и в приложении,
+ * варианты отличаются только источниками переходов в {@code CALCULATION_ERROR}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ErrorTransitionBenchmark {
+
+    @Param({ "per-state", "any-state" })
+    private String errorTransitions;
+
+    @Param({ "regions", "main" })
+    private String state;
+
+    private StateMachine<VssdvStates, VssdvEvents> stateMachine;
+    private Mono<Message<VssdvEvents>> deniedEvent;
+
+    @Setup(Level.Trial)
+    public void setUp()
+            throws Exception {
+        stateMachine = build("per-state".equals(errorTransitions));
+        stateMachine.startReactively().block();
+
+        if ("main".equals(state)) {
+            for (var model : VssdvModel.models()) {
+                for (var event : model.events()) {
+                    send(event);
+                }
+            }
+        }
+        // В регионах не принимается событие главной State Machine, после join – событие модели
+        deniedEvent = Mono.just(MessageBuilder
+                                        .withPayload("main".equals(state)
+                                                             ? VssdvModel.of("VAR_MODEL")
+                                                                         .event(VssdvModelEvents.DATA_PREPARED_EVENT)
+                                                             : VssdvEvents.VSSDV_DATA_COPIED_TO_STAGED_EVENT)
+                                        .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stateMachine.stopReactively().block();
+    }
+
+    @Benchmark
+    public StateMachineEventResult<VssdvStates, VssdvEvents> denied() {
+        return stateMachine.sendEvent(deniedEvent).blockLast();
+    }
+
+    private void send(VssdvEvents event) {
+        stateMachine.sendEvent(Mono.just(MessageBuilder.withPayload(event).build())).blockLast();
+    }
+
+    private static StateMachine<VssdvStates, VssdvEvents> build(boolean perState)
+            throws Exception {
+        final var builder = StateMachineBuilder.<VssdvStates, VssdvEvents>builder();
+        builder.configureConfiguration()
+               .withConfiguration()
+               .autoStartup(false);
+        VssdvStateMachineDefinition.configureStates(builder.configureStates());
+        VssdvStateMachineDefinition.configureTransitions(
+                builder.configureTransitions(),
+                perState ? Set.copyOf(VssdvStates.values()) : VssdvStateMachineDefinition.errorSources());
+        return builder.build();
+    }
+}
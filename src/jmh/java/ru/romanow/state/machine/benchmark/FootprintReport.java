@@ -0,0 +1,166 @@
+package ru.romanow.state.machine.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.jetbrains.annotations.NotNull;
+import ru.romanow.state.machine.config.StateMachineProperties.Engine;
+import ru.romanow.state.machine.models.EventDescriptor;
+import ru.romanow.state.machine.models.StateDescriptor;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
+import ru.romanow.state.machine.service.BaseStateMachineService;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Память, которую занимает один расчет в реестре State Machine, в разбивке по классам, как footprint в JOL.
+ * Гистограмма живых объектов ({@code GC.class_histogram}, перед ней выполняется full GC) снимается до и после
+ * захвата {@code calculations} State Machine, разница делится на их количество. Общие для всех расчетов объекты
+ * (конфигурация, таблица переходов, общие контексты) создаются до первого снимка и в разницу не попадают.
+ * Запускать с {@code -XX:SoftRefLRUPolicyMSPerMB=0}, иначе между снимками освобождаются soft-ссылки.
+ * Расчеты Cash Flow продвигаются на три шага, VSSDV – на первый шаг каждой модели, т.е. в регионы. На движке
+ * {@code spring} это десятки КБ и тысячи объектов на расчет, на {@code table} – сотни байт и около 10 объектов.
+ * <pre>
+ * ./gradlew jmhFootprint
+ * ./gradlew jmhFootprint --args=500
+ * </pre>
+ */
+public final class FootprintReport {
+    private static final int CALCULATIONS = 2_000;
+    private static final int TOP_CLASSES = 15;
+    private static final int SETTLE_ATTEMPTS = 20;
+    private static final long SETTLE_PAUSE_MILLIS = 500;
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args)
+            throws JMException, InterruptedException {
+        final int calculations = args.length > 0 ? Integer.parseInt(args[0]) : CALCULATIONS;
+        for (var engine : Engine.values()) {
+            try (var context = BenchmarkConfiguration.createContext(Map.of("state-machine.engine", engine.name()))) {
+                settle();
+                final var calculationStatusService = context.getBean(InMemoryCalculationStatusService.class);
+                report(engine, context.getBean(CashFlowStateMachineService.class), calculationStatusService,
+                       List.of(CashFlowEvents.DATA_PREPARED_EVENT,
+                               CashFlowEvents.DATA_COPIED_TO_STAGED_EVENT,
+                               CashFlowEvents.ETL_START_EVENT),
+                       calculations);
+                report(engine, context.getBean(VssdvStateMachineService.class), calculationStatusService,
+                       VssdvModel.models().stream().map(model -> model.events().get(0)).collect(toList()),
+                       calculations);
+            }
+        }
+    }
+
+    private static <States extends StateDescriptor, Events extends EventDescriptor> void report(
+            @NotNull Engine engine,
+            @NotNull BaseStateMachineService<States, Events> stateMachineService,
+            @NotNull InMemoryCalculationStatusService calculationStatusService,
+            @NotNull List<Events> events,
+            int calculations
+    ) throws JMException {
+        // Первый расчет создает общие объекты, которые создаются лениво (состояния табличного движка, контексты)
+        stateMachineService.sendEvents(UUID.randomUUID().toString(), events);
+        calculationStatusService.clear();
+
+        // Во время снимка after жива гистограмма before, поэтому before снимается, пока жива такая же пробная
+        // гистограмма, и их вклад сокращается
+        final var probe = new ArrayList<>(List.of(histogram()));
+        final var before = histogram();
+        probe.clear();
+        for (int i = 0; i < calculations; i++) {
+            stateMachineService.sendEvents(UUID.randomUUID().toString(), events);
+        }
+        // Записанная история к State Machine не относится
+        calculationStatusService.clear();
+        final var after = histogram();
+
+        // Объекты расчета – классы, экземпляров которых прибавилось хотя бы по одному на два расчета. Дробный прирост –
+        // рост общих таблиц и посторонние аллокации, в footprint он не входит
+        final var owned = after.keySet()
+                               .stream()
+                               .map(type -> Map.entry(type, after.get(type).minus(before.getOrDefault(type, Usage.EMPTY))))
+                               .filter(entry -> entry.getValue().instances * 2 >= calculations)
+                               .sorted(Comparator.comparingLong(entry -> -entry.getValue().bytes))
+                               .collect(toList());
+        final var total = owned.stream().map(Map.Entry::getValue).reduce(Usage.EMPTY, Usage::plus);
+
+        System.out.printf("%n%s / %s: %d calculations, %.0f bytes, %.1f objects per calculation%n",
+                          engine, stateMachineService.type(), calculations,
+                          (double) total.bytes / calculations, (double) total.instances / calculations);
+        System.out.printf("%12s %12s  %s%n", "COUNT/CALC", "BYTES/CALC", "CLASS");
+        owned.stream()
+             .limit(TOP_CLASSES)
+             .forEach(entry -> System.out.printf("%12.1f %12.1f  %s%n",
+                                                 (double) entry.getValue().instances / calculations,
+                                                 (double) entry.getValue().bytes / calculations,
+                                                 entry.getKey()));
+    }
+
+    // Контекст предыдущего движка освобождается не сразу после закрытия, ждем, пока занятая память перестанет падать
+    private static void settle()
+            throws InterruptedException {
+        final var memory = ManagementFactory.getMemoryMXBean();
+        long previous = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < SETTLE_ATTEMPTS; attempt++) {
+            memory.gc();
+            final long used = memory.getHeapMemoryUsage().getUsed();
+            if (used >= previous) {
+                return;
+            }
+            previous = used;
+            Thread.sleep(SETTLE_PAUSE_MILLIS);
+        }
+    }
+
+    // Строки гистограммы: "   1:   12345   678900  java.lang.String (java.base@17)"
+    @NotNull
+    private static Map<String, Usage> histogram()
+            throws JMException {
+        final var output = (String) ManagementFactory
+                .getPlatformMBeanServer()
+                .invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                        new Object[] { null }, new String[] { String[].class.getName() });
+        final var histogram = new HashMap<String, Usage>();
+        for (var line : output.split("\n")) {
+            final var columns = line.trim().split("\\s+");
+            if (columns.length >= 4 && columns[0].endsWith(":")) {
+                histogram.merge(columns[3], new Usage(Long.parseLong(columns[1]), Long.parseLong(columns[2])),
+                                Usage::plus);
+            }
+        }
+        return histogram;
+    }
+
+    private static final class Usage {
+        static final Usage EMPTY = new Usage(0, 0);
+
+        final long instances;
+        final long bytes;
+
+        Usage(long instances, long bytes) {
+            this.instances = instances;
+            this.bytes = bytes;
+        }
+
+        @NotNull
+        Usage plus(@NotNull Usage usage) {
+            return new Usage(instances + usage.instances, bytes + usage.bytes);
+        }
+
+        @NotNull
+        Usage minus(@NotNull Usage usage) {
+            return new Usage(instances - usage.instances, bytes - usage.bytes);
+        }
+    }
+}
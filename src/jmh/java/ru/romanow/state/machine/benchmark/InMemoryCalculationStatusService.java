@@ -0,0 +1,72 @@
+package ru.romanow.state.machine.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import org.jetbrains.annotations.NotNull;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
+import ru.romanow.state.machine.service.CalculationStatusService;
+
+/**
+ * Хранилище статусов в памяти вместо Postgres, задержка имитирует сетевой round-trip до БД.
+ */
+public class InMemoryCalculationStatusService
+        implements CalculationStatusService {
+    private final Map<UUID, CalculationStatusRecord> lastStates = new ConcurrentHashMap<>();
+    private volatile long latencyNanos;
+    private volatile boolean readOnly;
+
+    public void setLatency(@NotNull Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    // Записи принимаются, но не сохраняются: последнее состояние расчета не меняется
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public void clear() {
+        lastStates.clear();
+    }
+
+    @Override
+    public void create(@NotNull CalculationStatusRecord status) {
+        roundTrip();
+        if (!readOnly) {
+            lastStates.put(status.getCalculationUid(), status);
+        }
+    }
+
+    @Override
+    public void create(@NotNull List<CalculationStatusRecord> statuses) {
+        roundTrip();
+        if (!readOnly) {
+            statuses.forEach(status -> lastStates.put(status.getCalculationUid(), status));
+        }
+    }
+
+    @NotNull
+    @Override
+    public Optional<CalculationStatusRecord> getCalculationLastState(@NotNull UUID calculationUid) {
+        roundTrip();
+        return Optional.ofNullable(lastStates.get(calculationUid));
+    }
+
+    @Override
+    public long getCalculationLastVersion(@NotNull UUID calculationUid) {
+        roundTrip();
+        final var status = lastStates.get(calculationUid);
+        return status != null ? status.getVersion() : 0L;
+    }
+
+    private void roundTrip() {
+        final long latency = latencyNanos;
+        if (latency > 0) {
+            LockSupport.parkNanos(latency);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.romanow.state.machine.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.StateMachineEventResult;
+import org.springframework.statemachine.StateMachineEventResult.ResultType;
+import reactor.core.publisher.Mono;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
+import ru.romanow.state.machine.service.StateMachineService;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Один переход State Machine с записью persister'ом в хранилище в памяти. Событие меняет состояние, поэтому перед
+ * каждым событием State Machine возвращается в исходное состояние: {@code restore-policy: always}, а хранилище
+ * после подготовки только принимает записи. Cash Flow переходит из {@code ETL_START}, VSSDV – во втором шаге первой
+ * модели, когда все регионы активны.
+ * <ul>
+ *     <li>{@code restore} – acquire: чтение последнего состояния, восстановление и запуск;</li>
+ *     <li>{@code sendEvent} – тот же acquire и событие, стоимость события – разница с {@code restore}.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SendEventBenchmark {
+
+    @Param({ "spring", "table" })
+    private String engine;
+
+    @Param({ "cashflow", "vssdv" })
+    private String type;
+
+    private AnnotationConfigApplicationContext context;
+    private StateMachineService<?, ?> stateMachineService;
+    private Supplier<StateMachineEventResult<?, ?>> sendEvent;
+    private String machineId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkConfiguration.createContext(Map.of(
+                "state-machine.engine", engine,
+                "state-machine.restore-policy", "always"));
+        machineId = UUID.randomUUID().toString();
+
+        if ("cashflow".equals(type)) {
+            final var service = context.getBean(CashFlowStateMachineService.class);
+            service.sendEvents(machineId, List.of(CashFlowEvents.DATA_PREPARED_EVENT,
+                                                  CashFlowEvents.DATA_COPIED_TO_STAGED_EVENT,
+                                                  CashFlowEvents.ETL_START_EVENT));
+            final var message = MessageBuilder.withPayload(CashFlowEvents.ETL_SENT_TO_DRP_EVENT).build();
+            sendEvent = () -> service.acquireStateMachine(machineId).sendEvent(Mono.just(message)).blockLast();
+            stateMachineService = service;
+        } else {
+            final var service = context.getBean(VssdvStateMachineService.class);
+            service.sendEvents(machineId, VssdvModel.models()
+                                                    .stream()
+                                                    .map(model -> model.events().get(0))
+                                                    .collect(toList()));
+            final var event = VssdvModel.models().get(0).events().get(1);
+            final var message = MessageBuilder.withPayload(event).build();
+            sendEvent = () -> service.acquireStateMachine(machineId).sendEvent(Mono.just(message)).blockLast();
+            stateMachineService = service;
+        }
+        context.getBean(InMemoryCalculationStatusService.class).setReadOnly(true);
+
+        final var result = sendEvent.get();
+        if (result == null || result.getResultType() != ResultType.ACCEPTED) {
+            throw new IllegalStateException("Event is not accepted: " + result);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StateMachine<?, ?> restore() {
+        return stateMachineService.acquireStateMachine(machineId);
+    }
+
+    @Benchmark
+    public StateMachineEventResult<?, ?> sendEvent() {
+        return sendEvent.get();
+    }
+}
@@ -0,0 +1,123 @@
+package ru.romanow.state.machine.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.statemachine.StateMachineContext;
+import org.springframework.statemachine.support.DefaultExtendedState;
+import org.springframework.statemachine.support.DefaultStateMachineContext;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
+import ru.romanow.state.machine.models.cashflow.CashFlowStates;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
+import ru.romanow.state.machine.models.vssdv.VssdvModelStates;
+import ru.romanow.state.machine.models.vssdv.VssdvStates;
+import ru.romanow.state.machine.service.BaseCustomStateMachinePersist;
+import ru.romanow.state.machine.service.PackedStateCodec;
+import ru.romanow.state.machine.service.StateCodec;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.TransitionAuditLog;
+import ru.romanow.state.machine.service.cashflow.CashFlowCustomStateMachinePersist;
+import ru.romanow.state.machine.service.vssdv.VssdvCustomStateMachinePersist;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Построение контекста для восстановления State Machine из последней записи истории (БД – в памяти без задержки).
+ * <ul>
+ *     <li>{@code allocating} – дерево {@link DefaultStateMachineContext} строится заново на каждое чтение,
+ *     как было до общих контекстов;</li>
+ *     <li>{@code interned} – {@link BaseCustomStateMachinePersist#read}: общие контексты состояний, на чтение
+ *     создаются только корневой контекст регионов и обертка с id и версией.</li>
+ * </ul>
+ * Аллокации на операцию – с профайлером {@code -prof gc} ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StateMachineContextReadBenchmark {
+    private static final String VERSION = "calculationStatusVersion";
+
+    @Param({ "cashflow", "vssdv" })
+    private String type;
+
+    private InMemoryCalculationStatusService calculationStatusService;
+    private TransitionAuditLog auditLog;
+    private BaseCustomStateMachinePersist<?, ?> stateMachinePersist;
+    private StateCodec<?> stateCodec;
+    private UUID calculationUid;
+    private String machineId;
+
+    @Setup
+    public void setUp() {
+        calculationStatusService = new InMemoryCalculationStatusService();
+        // Чтение в журнал переходов не пишет
+        auditLog = new TransitionAuditLog(new StateMachineProperties());
+        final var metrics = new StateMachineMetrics(new SimpleMeterRegistry());
+        calculationUid = UUID.randomUUID();
+        machineId = calculationUid.toString();
+
+        final byte[] stateCode;
+        if ("vssdv".equals(type)) {
+            final var codec = new PackedStateCodec<>(VssdvStates.values());
+            stateCode = codec.encode(List.of(VssdvStates.CALCULATION_STARTED,
+                                             VssdvModel.of("VAR_MODEL").state(VssdvModelStates.ETL_START),
+                                             VssdvModel.of("BLACK_MODEL").state(VssdvModelStates.DATA_PREPARED)));
+            stateCodec = codec;
+            stateMachinePersist = new VssdvCustomStateMachinePersist(calculationStatusService, auditLog, metrics);
+        } else {
+            final var codec = new PackedStateCodec<>(List.of(CashFlowStates.values()));
+            stateCode = codec.encode(List.of(CashFlowStates.ETL_START));
+            stateCodec = codec;
+            stateMachinePersist = new CashFlowCustomStateMachinePersist(calculationStatusService, auditLog, metrics);
+        }
+        calculationStatusService.create(new CalculationStatusRecord(calculationUid, stateCode, 4L));
+    }
+
+    @TearDown
+    public void tearDown()
+            throws InterruptedException {
+        auditLog.destroy();
+    }
+
+    @Benchmark
+    public StateMachineContext<?, ?> allocating() {
+        final var status = calculationStatusService.getCalculationLastState(calculationUid).orElseThrow();
+        return build(stateCodec.decode(status.getStateCode()), status.getVersion());
+    }
+
+    @Benchmark
+    public StateMachineContext<?, ?> interned() {
+        return stateMachinePersist.read(machineId);
+    }
+
+    private <S> StateMachineContext<S, Object> build(List<S> states, long version) {
+        final List<StateMachineContext<S, Object>> childrenStates =
+                range(1, states.size())
+                        .mapToObj(i -> new DefaultStateMachineContext<S, Object>(states.get(i), null, null, null))
+                        .collect(toList());
+
+        final var extendedState = new DefaultExtendedState();
+        extendedState.getVariables().put(VERSION, version);
+
+        return new DefaultStateMachineContext<>(
+                childrenStates, states.get(0), null, null, extendedState, null, machineId);
+    }
+}
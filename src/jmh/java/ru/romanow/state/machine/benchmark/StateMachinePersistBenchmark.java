@@ -0,0 +1,135 @@
+package ru.romanow.state.machine.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.StateMachineContext;
+import org.springframework.statemachine.state.RegionState;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.cashflow.CashFlowStates;
+import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
+import ru.romanow.state.machine.models.vssdv.VssdvStates;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.TransitionAuditLog;
+import ru.romanow.state.machine.service.cashflow.CashFlowCustomStateMachinePersist;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+import ru.romanow.state.machine.service.vssdv.VssdvCustomStateMachinePersist;
+import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Запись перехода Spring State Machine persister'ом (БД – в памяти без задержки), без самой State Machine:
+ * <ul>
+ *     <li>{@code buildStateMachineContext} – контекст перехода из State Machine, для VSSDV – переход в регионе,
+ *     т.е. со всеми состояниями регионов;</li>
+ *     <li>{@code write} – версия, state_code, запись истории и журнал переходов.</li>
+ * </ul>
+ * Чтение последнего состояния – {@link StateMachineContextReadBenchmark}, аллокации на операцию –
+ * с профайлером {@code -prof gc} ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StateMachinePersistBenchmark {
+
+    @Param({ "cashflow", "vssdv" })
+    private String type;
+
+    private AnnotationConfigApplicationContext context;
+    private Supplier<StateMachineContext<?, ?>> build;
+    private Runnable write;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkConfiguration.createContext(Map.of("state-machine.engine", "spring"));
+        final var calculationStatusService = context.getBean(InMemoryCalculationStatusService.class);
+        final var auditLog = context.getBean(TransitionAuditLog.class);
+        final var metrics = context.getBean(StateMachineMetrics.class);
+        final var machineId = UUID.randomUUID().toString();
+
+        if ("cashflow".equals(type)) {
+            final var service = context.getBean(CashFlowStateMachineService.class);
+            service.sendEvents(machineId, List.of(CashFlowEvents.DATA_PREPARED_EVENT,
+                                                  CashFlowEvents.DATA_COPIED_TO_STAGED_EVENT));
+            final var stateMachine = service.acquireStateMachine(machineId);
+            final Message<CashFlowEvents> message = MessageBuilder.withPayload(CashFlowEvents.ETL_START_EVENT).build();
+            final var state = stateMachine.getStates()
+                                          .stream()
+                                          .filter(s -> s.getId() == CashFlowStates.ETL_START)
+                                          .findFirst()
+                                          .orElseThrow();
+
+            // buildStateMachineContext – метод interceptor'а, доступен только наследнику
+            final var persist = new CashFlowCustomStateMachinePersist(calculationStatusService, auditLog, metrics) {
+                StateMachineContext<CashFlowStates, CashFlowEvents> build() {
+                    return buildStateMachineContext(stateMachine, stateMachine, state, message);
+                }
+            };
+            final var built = persist.build();
+            build = persist::build;
+            write = () -> persist.write(built, machineId);
+        } else {
+            final var service = context.getBean(VssdvStateMachineService.class);
+            service.sendEvents(machineId, VssdvModel.models()
+                                                    .stream()
+                                                    .map(model -> model.events().get(0))
+                                                    .collect(toList()));
+            final StateMachine<VssdvStates, VssdvEvents> stateMachine = service.acquireStateMachine(machineId);
+            final var event = VssdvModel.models().get(0).events().get(1);
+            final Message<VssdvEvents> message = MessageBuilder.withPayload(event).build();
+            final var state = ((RegionState<VssdvStates, VssdvEvents>) stateMachine.getState())
+                    .getRegions()
+                    .iterator()
+                    .next()
+                    .getState();
+
+            final var persist = new VssdvCustomStateMachinePersist(calculationStatusService, auditLog, metrics) {
+                StateMachineContext<VssdvStates, VssdvEvents> build() {
+                    return buildStateMachineContext(stateMachine, stateMachine, state, message);
+                }
+            };
+            final var built = persist.build();
+            build = persist::build;
+            write = () -> persist.write(built, machineId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StateMachineContext<?, ?> buildStateMachineContext() {
+        return build.get();
+    }
+
+    @Benchmark
+    public void write() {
+        write.run();
+    }
+}
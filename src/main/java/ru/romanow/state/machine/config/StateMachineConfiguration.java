@@ -1,19 +1,17 @@
 package ru.romanow.state.machine.config;
 
+import java.util.EnumSet;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.context.ApplicationListener;
-import org.springframework.context.annotation.Bean;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.statemachine.config.EnableStateMachineFactory;
 import org.springframework.statemachine.config.EnumStateMachineConfigurerAdapter;
+import org.springframework.statemachine.config.StateMachineConfigurerAdapter;
 import org.springframework.statemachine.config.builders.StateMachineConfigurationConfigurer;
 import org.springframework.statemachine.config.builders.StateMachineStateConfigurer;
 import org.springframework.statemachine.config.builders.StateMachineTransitionConfigurer;
-import org.springframework.statemachine.event.StateMachineEvent;
-import org.springframework.statemachine.listener.StateMachineListenerAdapter;
-import org.springframework.statemachine.state.State;
 import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
 import ru.romanow.state.machine.models.cashflow.CashFlowStates;
 import ru.romanow.state.machine.models.vssdv.VssdvEvents;
@@ -22,26 +20,17 @@ import ru.romanow.state.machine.service.cashflow.CashFlowCustomStateMachinePersi
 import ru.romanow.state.machine.service.vssdv.VssdvCustomStateMachinePersist;
 
 import static java.util.EnumSet.allOf;
-import static java.util.Objects.nonNull;
-import static java.util.stream.Collectors.toSet;
+import static java.util.EnumSet.complementOf;
 import static ru.romanow.state.machine.domain.CalculationTypes.CASHFLOW;
 import static ru.romanow.state.machine.domain.CalculationTypes.VSSDV;
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.BLACK_MODEL;
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.MAIN;
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.VAR_MODEL;
 
 @Configuration
+@EnableConfigurationProperties(StateMachineProperties.class)
 public class StateMachineConfiguration {
 
-    private static final Logger logger = LoggerFactory.getLogger(StateMachineConfiguration.class);
-
-    @Bean
-    public ApplicationListener<StateMachineEvent> stateMachineEventApplicationListener() {
-        return event -> logger.debug(event.toString());
-    }
-
+    // Переходы записывает в TransitionAuditLog persister, события в ApplicationContext не публикуются
     @Configuration
-    @EnableStateMachineFactory(name = CASHFLOW)
+    @EnableStateMachineFactory(name = CASHFLOW, contextEvents = false)
     @RequiredArgsConstructor
     static class CashFlowStateMachineConfiguration
             extends EnumStateMachineConfigurerAdapter<CashFlowStates, CashFlowEvents> {
@@ -51,10 +40,10 @@ public class StateMachineConfiguration {
         @Override
         public void configure(StateMachineConfigurationConfigurer<CashFlowStates, CashFlowEvents> config)
                 throws Exception {
+            // State Machine запускает BaseStateMachineService уже в восстановленном состоянии
             // @formatter:off
             config.withConfiguration()
-                      .autoStartup(true)
-                      .listener(new StateMachineListener<>())
+                      .autoStartup(false)
                   .and()
                       .withPersistence()
                       .runtimePersister(cashFlowStateMachinePersist);
@@ -157,31 +146,28 @@ public class StateMachineConfiguration {
                     .event(CashFlowEvents.CALCULATION_FINISHED_EVENT);
             // @formatter:on
 
-            for (var state : CashFlowStates.values()) {
-                transitions
-                        .withExternal()
-                        .source(state)
-                        .target(CashFlowStates.CALCULATION_ERROR)
-                        .event(CashFlowEvents.CALCULATION_ERROR_EVENT);
-            }
+            fromEach(transitions,
+                     complementOf(EnumSet.of(CashFlowStates.CALCULATION_FINISHED, CashFlowStates.CALCULATION_ERROR)),
+                     CashFlowEvents.CALCULATION_ERROR_EVENT,
+                     CashFlowStates.CALCULATION_ERROR);
         }
 
     }
 
     @Configuration
-    @EnableStateMachineFactory(name = VSSDV)
+    @EnableStateMachineFactory(name = VSSDV, contextEvents = false)
     @RequiredArgsConstructor
     static class VssdvStateMachineConfiguration
-            extends EnumStateMachineConfigurerAdapter<VssdvStates, VssdvEvents> {
+            extends StateMachineConfigurerAdapter<VssdvStates, VssdvEvents> {
 
         private final VssdvCustomStateMachinePersist vssdvStateMachinePersist;
 
         @Override
         public void configure(StateMachineConfigurationConfigurer<VssdvStates, VssdvEvents> config) throws Exception {
+            // State Machine запускает BaseStateMachineService уже в восстановленном состоянии
             // @formatter:off
             config.withConfiguration()
-                      .autoStartup(true)
-                      .listener(new StateMachineListener<>())
+                      .autoStartup(false)
                   .and()
                       .withPersistence()
                       .runtimePersister(vssdvStateMachinePersist);
@@ -190,326 +176,32 @@ public class StateMachineConfiguration {
 
         @Override
         public void configure(StateMachineStateConfigurer<VssdvStates, VssdvEvents> states) throws Exception {
-            // @formatter:off
-            states.withStates()
-                      .region("VSSDV")
-                      .initial(VssdvStates.CALCULATION_STARTED)
-                      .fork(VssdvStates.CALCULATION_STARTED)
-                      .join(VssdvStates.VSSDV_JOIN_STATE)
-                      .states(allOf(VssdvStates.class)
-                                      .stream()
-                                      .filter(s -> s.type() == MAIN)
-                                      .collect(toSet()))
-                      .end(VssdvStates.VSSDV_CALCULATION_FINISHED)
-                      .end(VssdvStates.CALCULATION_ERROR)
-                  .and()
-                  .withStates()
-                      .region("Var Model")
-                      .parent(VssdvStates.CALCULATION_STARTED)
-                      .initial(VssdvStates.VAR_MODEL_CALCULATION_STARTED)
-                      .end(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                      .states(allOf(VssdvStates.class)
-                                      .stream()
-                                      .filter(s -> s.type() == VAR_MODEL)
-                                      .collect(toSet()))
-                  .and()
-                  .withStates()
-                      .region("Black Model")
-                      .parent(VssdvStates.CALCULATION_STARTED)
-                      .initial(VssdvStates.BLACK_MODEL_CALCULATION_STARTED)
-                      .end(VssdvStates.BLACK_MODEL_CALCULATION_FINISHED)
-                      .states(allOf(VssdvStates.class)
-                                      .stream()
-                                      .filter(s -> s.type() == BLACK_MODEL)
-                                      .collect(toSet()));
-            // @formatter:on
+            VssdvStateMachineDefinition.configureStates(states);
         }
 
         @Override
         public void configure(StateMachineTransitionConfigurer<VssdvStates, VssdvEvents> transitions) throws Exception {
-            // @formatter:off
-            // region Var Model
-            transitions
-                    .withFork()
-                        .source(VssdvStates.CALCULATION_STARTED)
-                        .target(VssdvStates.VAR_MODEL_CALCULATION_STARTED)
-                        .target(VssdvStates.BLACK_MODEL_CALCULATION_STARTED)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_CALCULATION_STARTED)
-                        .target(VssdvStates.VAR_MODEL_DATA_PREPARED)
-                        .event(VssdvEvents.VAR_MODEL_DATA_PREPARED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_DATA_PREPARED)
-                        .target(VssdvStates.VAR_MODEL_DATA_COPIED_TO_STAGED)
-                        .event(VssdvEvents.VAR_MODEL_DATA_COPIED_TO_STAGED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_DATA_COPIED_TO_STAGED)
-                        .target(VssdvStates.VAR_MODEL_ETL_START)
-                        .event(VssdvEvents.VAR_MODEL_ETL_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_ETL_START)
-                        .target(VssdvStates.VAR_MODEL_ETL_SENT_TO_DRP)
-                        .event(VssdvEvents.VAR_MODEL_ETL_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_ETL_SENT_TO_DRP)
-                        .target(VssdvStates.VAR_MODEL_ETL_ACCEPTED)
-                        .event(VssdvEvents.VAR_MODEL_ETL_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_ETL_ACCEPTED)
-                        .target(VssdvStates.VAR_MODEL_ETL_COMPLETED)
-                        .event(VssdvEvents.VAR_MODEL_ETL_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_ETL_COMPLETED)
-                        .target(VssdvStates.VAR_MODEL_CALCULATION_START)
-                        .event(VssdvEvents.VAR_MODEL_CALCULATION_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_CALCULATION_START)
-                        .target(VssdvStates.VAR_MODEL_CALCULATION_SENT_TO_DRP)
-                        .event(VssdvEvents.VAR_MODEL_CALCULATION_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_CALCULATION_SENT_TO_DRP)
-                        .target(VssdvStates.VAR_MODEL_CALCULATION_ACCEPTED)
-                        .event(VssdvEvents.VAR_MODEL_CALCULATION_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_CALCULATION_ACCEPTED)
-                        .target(VssdvStates.VAR_MODEL_CALCULATION_COMPLETED)
-                        .event(VssdvEvents.VAR_MODEL_CALCULATION_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_CALCULATION_COMPLETED)
-                        .target(VssdvStates.VAR_MODEL_REVERSED_ETL_START)
-                        .event(VssdvEvents.VAR_MODEL_REVERSED_ETL_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_REVERSED_ETL_START)
-                        .target(VssdvStates.VAR_MODEL_REVERSED_ETL_SENT_TO_DRP)
-                        .event(VssdvEvents.VAR_MODEL_REVERSED_ETL_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_REVERSED_ETL_SENT_TO_DRP)
-                        .target(VssdvStates.VAR_MODEL_REVERSED_ETL_ACCEPTED)
-                        .event(VssdvEvents.VAR_MODEL_REVERSED_ETL_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_REVERSED_ETL_ACCEPTED)
-                        .target(VssdvStates.VAR_MODEL_REVERSED_ETL_COMPLETED)
-                        .event(VssdvEvents.VAR_MODEL_REVERSED_ETL_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_REVERSED_ETL_COMPLETED)
-                        .target(VssdvStates.VAR_MODEL_DATA_COPIED_FROM_STAGED)
-                        .event(VssdvEvents.VAR_MODEL_DATA_COPIED_FROM_STAGED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VAR_MODEL_DATA_COPIED_FROM_STAGED)
-                        .target(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                        .event(VssdvEvents.VAR_MODEL_CALCULATION_FINISHED_EVENT);
-            // endregion
-            
-            // region Black Model
-            transitions
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_CALCULATION_STARTED)
-                        .target(VssdvStates.BLACK_MODEL_DATA_PREPARED)
-                        .event(VssdvEvents.BLACK_MODEL_DATA_PREPARED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_DATA_PREPARED)
-                        .target(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
-                        .event(VssdvEvents.BLACK_MODEL_DATA_COPIED_TO_STAGED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
-                        .target(VssdvStates.BLACK_MODEL_ETL_START)
-                        .event(VssdvEvents.BLACK_MODEL_ETL_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_ETL_START)
-                        .target(VssdvStates.BLACK_MODEL_ETL_SENT_TO_DRP)
-                        .event(VssdvEvents.BLACK_MODEL_ETL_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_ETL_SENT_TO_DRP)
-                        .target(VssdvStates.BLACK_MODEL_ETL_ACCEPTED)
-                        .event(VssdvEvents.BLACK_MODEL_ETL_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_ETL_ACCEPTED)
-                        .target(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
-                        .event(VssdvEvents.BLACK_MODEL_ETL_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
-                        .target(VssdvStates.BLACK_MODEL_CALCULATION_START)
-                        .event(VssdvEvents.BLACK_MODEL_CALCULATION_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_CALCULATION_START)
-                        .target(VssdvStates.BLACK_MODEL_CALCULATION_SENT_TO_DRP)
-                        .event(VssdvEvents.BLACK_MODEL_CALCULATION_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_CALCULATION_SENT_TO_DRP)
-                        .target(VssdvStates.BLACK_MODEL_CALCULATION_ACCEPTED)
-                        .event(VssdvEvents.BLACK_MODEL_CALCULATION_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_CALCULATION_ACCEPTED)
-                        .target(VssdvStates.BLACK_MODEL_CALCULATION_COMPLETED)
-                        .event(VssdvEvents.BLACK_MODEL_CALCULATION_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_CALCULATION_COMPLETED)
-                        .target(VssdvStates.BLACK_MODEL_REVERSED_ETL_START)
-                        .event(VssdvEvents.BLACK_MODEL_REVERSED_ETL_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_REVERSED_ETL_START)
-                        .target(VssdvStates.BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP)
-                        .event(VssdvEvents.BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP)
-                        .target(VssdvStates.BLACK_MODEL_REVERSED_ETL_ACCEPTED)
-                        .event(VssdvEvents.BLACK_MODEL_REVERSED_ETL_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_REVERSED_ETL_ACCEPTED)
-                        .target(VssdvStates.BLACK_MODEL_REVERSED_ETL_COMPLETED)
-                        .event(VssdvEvents.BLACK_MODEL_REVERSED_ETL_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_REVERSED_ETL_COMPLETED)
-                        .target(VssdvStates.BLACK_MODEL_DATA_COPIED_FROM_STAGED)
-                        .event(VssdvEvents.BLACK_MODEL_DATA_COPIED_FROM_STAGED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.BLACK_MODEL_DATA_COPIED_FROM_STAGED)
-                        .target(VssdvStates.BLACK_MODEL_CALCULATION_FINISHED)
-                        .event(VssdvEvents.BLACK_MODEL_CALCULATION_FINISHED_EVENT);
-            // endregion
-
-            // region Black Model
-            transitions
-                    .withJoin()
-                        .source(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                        .source(VssdvStates.BLACK_MODEL_CALCULATION_FINISHED)
-                        .target(VssdvStates.VSSDV_JOIN_STATE)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_JOIN_STATE)
-                        .target(VssdvStates.VSSDV_CALCULATION_STARTED)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_CALCULATION_STARTED)
-                        .target(VssdvStates.VSSDV_DATA_PREPARED)
-                        .event(VssdvEvents.VSSDV_DATA_PREPARED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_DATA_PREPARED)
-                        .target(VssdvStates.VSSDV_DATA_COPIED_TO_STAGED)
-                        .event(VssdvEvents.VSSDV_DATA_COPIED_TO_STAGED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_DATA_COPIED_TO_STAGED)
-                        .target(VssdvStates.VSSDV_ETL_START)
-                        .event(VssdvEvents.VSSDV_ETL_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_ETL_START)
-                        .target(VssdvStates.VSSDV_ETL_SENT_TO_DRP)
-                        .event(VssdvEvents.VSSDV_ETL_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_ETL_SENT_TO_DRP)
-                        .target(VssdvStates.VSSDV_ETL_ACCEPTED)
-                        .event(VssdvEvents.VSSDV_ETL_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_ETL_ACCEPTED)
-                        .target(VssdvStates.VSSDV_ETL_COMPLETED)
-                        .event(VssdvEvents.VSSDV_ETL_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_ETL_COMPLETED)
-                        .target(VssdvStates.VSSDV_CALCULATION_START)
-                        .event(VssdvEvents.VSSDV_CALCULATION_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_CALCULATION_START)
-                        .target(VssdvStates.VSSDV_CALCULATION_SENT_TO_DRP)
-                        .event(VssdvEvents.VSSDV_CALCULATION_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_CALCULATION_SENT_TO_DRP)
-                        .target(VssdvStates.VSSDV_CALCULATION_ACCEPTED)
-                        .event(VssdvEvents.VSSDV_CALCULATION_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_CALCULATION_ACCEPTED)
-                        .target(VssdvStates.VSSDV_CALCULATION_COMPLETED)
-                        .event(VssdvEvents.VSSDV_CALCULATION_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_CALCULATION_COMPLETED)
-                        .target(VssdvStates.VSSDV_REVERSED_ETL_START)
-                        .event(VssdvEvents.VSSDV_REVERSED_ETL_START_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_REVERSED_ETL_START)
-                        .target(VssdvStates.VSSDV_REVERSED_ETL_SENT_TO_DRP)
-                        .event(VssdvEvents.VSSDV_REVERSED_ETL_SENT_TO_DRP_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_REVERSED_ETL_SENT_TO_DRP)
-                        .target(VssdvStates.VSSDV_REVERSED_ETL_ACCEPTED)
-                        .event(VssdvEvents.VSSDV_REVERSED_ETL_ACCEPTED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_REVERSED_ETL_ACCEPTED)
-                        .target(VssdvStates.VSSDV_REVERSED_ETL_COMPLETED)
-                        .event(VssdvEvents.VSSDV_REVERSED_ETL_COMPLETED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_REVERSED_ETL_COMPLETED)
-                        .target(VssdvStates.VSSDV_DATA_COPIED_FROM_STAGED)
-                        .event(VssdvEvents.VSSDV_DATA_COPIED_FROM_STAGED_EVENT)
-                    .and()
-                    .withExternal()
-                        .source(VssdvStates.VSSDV_DATA_COPIED_FROM_STAGED)
-                        .target(VssdvStates.VSSDV_CALCULATION_FINISHED)
-                        .event(VssdvEvents.VSSDV_CALCULATION_FINISHED_EVENT);
-            // endregion
-            // @formatter:on
-
-            for (var state : VssdvStates.values()) {
-                transitions.withExternal()
-                           .source(state)
-                           .target(VssdvStates.CALCULATION_ERROR)
-                           .event(VssdvEvents.CALCULATION_ERROR_EVENT);
-            }
+            VssdvStateMachineDefinition.configureTransitions(transitions, VssdvStateMachineDefinition.errorSources());
         }
 
     }
 
-    private static class StateMachineListener<States extends Enum<States>, Events extends Enum<Events>>
-            extends StateMachineListenerAdapter<States, Events> {
-
-        @Override
-        public void stateChanged(State<States, Events> from, State<States, Events> to) {
-            logger.info("State changed from {} to: {}", nonNull(from) ? from.getIds() : "empty", to.getIds());
+    // Один и тот же переход по событию из каждого состояния sources. Источника-wildcard в Spring State Machine нет,
+    // это N отдельных переходов, которые State Machine перебирает при каждом событии. Поэтому sources – только
+    // состояния верхнего уровня, в которых State Machine ждет события: событие, не принятое регионами, обрабатывает
+    // родительское состояние. Табличный движок распознает такие переходы и проверяет их одним обращением к массиву
+    static <States, Events> void fromEach(
+            @NotNull StateMachineTransitionConfigurer<States, Events> transitions,
+            @NotNull Set<States> sources,
+            @NotNull Events event,
+            @NotNull States target
+    ) throws Exception {
+        for (var source : sources) {
+            transitions.withExternal()
+                       .source(source)
+                       .target(target)
+                       .event(event);
         }
-
     }
 
 }
@@ -0,0 +1,124 @@
+package ru.romanow.state.machine.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "state-machine")
+public class StateMachineProperties {
+
+    private int lockStripes = 64;
+
+    private RestorePolicy restorePolicy = RestorePolicy.VERSION;
+
+    private Engine engine = Engine.SPRING;
+
+    private Registry registry = new Registry();
+
+    private Dispatcher dispatcher = new Dispatcher();
+
+    private Persistence persistence = new Persistence();
+
+    private CalculationCache calculationCache = new CalculationCache();
+
+    private Audit audit = new Audit();
+
+    private Tickets tickets = new Tickets();
+
+    public enum RestorePolicy {
+        // Всегда читать последнее состояние из БД и восстанавливать State Machine
+        ALWAYS,
+        // Сверять версию State Machine в памяти с версией в БД, восстанавливать только при расхождении
+        VERSION,
+        // Расчеты закреплены за узлом: State Machine из реестра используется без обращения к БД
+        OWNED
+    }
+
+    public enum Engine {
+        // Spring State Machine
+        SPRING,
+        // Таблица переходов, скомпилированная из той же конфигурации, регионы – по байту на регион
+        TABLE
+    }
+
+    public enum PersistenceMode {
+        // Каждый переход пишется в БД своей транзакцией в потоке State Machine
+        SYNC,
+        // Переходы ставятся в очередь и пишутся общими транзакциями фоновым потоком
+        GROUP_COMMIT
+    }
+
+    @Getter
+    @Setter
+    public static class Registry {
+        // Максимальное количество State Machine в памяти для одного типа расчета
+        private long maxSize = 10_000;
+
+        // Время простоя, после которого State Machine выгружается и останавливается
+        private Duration idleTimeout = Duration.ofMinutes(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Dispatcher {
+        // Количество однопоточных worker'ов, события одного расчета всегда обрабатывает один из них
+        private int workers = Runtime.getRuntime().availableProcessors();
+
+        // Максимальное количество ожидающих задач у одного worker'а
+        private int queueCapacity = 10_000;
+
+        // Сколько расчетов одного пакетного запроса одновременно находится в почтовых ящиках
+        private int bulkParallelism = 64;
+    }
+
+    @Getter
+    @Setter
+    public static class Persistence {
+        private PersistenceMode mode = PersistenceMode.SYNC;
+
+        // Максимальное количество записей в одной транзакции
+        private int batchSize = 256;
+
+        // Максимальное время ожидания записи в очереди до commit
+        private Duration maxDelay = Duration.ofMillis(5);
+
+        // Размер очереди, при заполнении запись ждет освобождения места
+        private int queueCapacity = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class CalculationCache {
+        // Максимальное количество закэшированных соответствий uid -> id расчета
+        private long maxSize = 100_000;
+
+        // Сколько помнить, что расчета с таким uid нет. Расчет может быть создан позже, поэтому недолго
+        private Duration negativeTtl = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Audit {
+        // Размер кольцевого буфера журнала переходов (округляется до степени двойки), при заполнении записи отбрасываются
+        private int capacity = 8192;
+
+        // Пауза фонового потока, когда новых записей нет
+        private Duration drainInterval = Duration.ofMillis(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Tickets {
+        // Максимальное количество квитанций асинхронной отправки событий в памяти
+        private long maxSize = 100_000;
+
+        // Сколько хранится квитанция после создания, за это время клиент должен забрать результат
+        private Duration ttl = Duration.ofMinutes(10);
+
+        // Максимальное время ожидания результата одним запросом long polling
+        private Duration maxWait = Duration.ofSeconds(30);
+    }
+}
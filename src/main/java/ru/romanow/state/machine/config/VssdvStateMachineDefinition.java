@@ -0,0 +1,194 @@
+package ru.romanow.state.machine.config;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.statemachine.config.StateMachineBuilder;
+import org.springframework.statemachine.config.builders.StateMachineStateConfigurer;
+import org.springframework.statemachine.config.builders.StateMachineTransitionConfigurer;
+import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
+import ru.romanow.state.machine.models.vssdv.VssdvStates;
+
+import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toSet;
+import static ru.romanow.state.machine.config.StateMachineConfiguration.fromEach;
+import static ru.romanow.state.machine.models.StateDescriptor.MAIN;
+
+/**
+ * Состояния и переходы State Machine VSSDV. По ним собирается фабрика в {@link StateMachineConfiguration}, а также
+ * State Machine, собранные через {@link StateMachineBuilder} вне Spring контекста, например, в бенчмарках.
+ */
+public final class VssdvStateMachineDefinition {
+
+    private VssdvStateMachineDefinition() {
+    }
+
+    public static void configureStates(@NotNull StateMachineStateConfigurer<VssdvStates, VssdvEvents> states)
+            throws Exception {
+        // @formatter:off
+        states.withStates()
+                  .region("VSSDV")
+                  .initial(VssdvStates.CALCULATION_STARTED)
+                  .fork(VssdvStates.CALCULATION_STARTED)
+                  .join(VssdvStates.VSSDV_JOIN_STATE)
+                  .states(VssdvStates.values()
+                                     .stream()
+                                     .filter(s -> s.region() == MAIN)
+                                     .collect(toSet()))
+                  .end(VssdvStates.VSSDV_CALCULATION_FINISHED)
+                  .end(VssdvStates.CALCULATION_ERROR);
+        // @formatter:on
+
+        // Регион на каждую модель, состояния модели построены по шаблону VssdvModelStates в порядке переходов
+        for (var model : VssdvModel.models()) {
+            final var modelStates = model.states();
+            // @formatter:off
+            states.withStates()
+                      .region(regionName(model))
+                      .parent(VssdvStates.CALCULATION_STARTED)
+                      .initial(modelStates.get(0))
+                      .end(modelStates.get(modelStates.size() - 1))
+                      .states(Set.copyOf(modelStates));
+            // @formatter:on
+        }
+    }
+
+    // Переходы по CALCULATION_ERROR_EVENT добавляются из каждого состояния errorSources
+    public static void configureTransitions(
+            @NotNull StateMachineTransitionConfigurer<VssdvStates, VssdvEvents> transitions,
+            @NotNull Set<VssdvStates> errorSources
+    ) throws Exception {
+        final var fork = transitions.withFork().source(VssdvStates.CALCULATION_STARTED);
+        final var join = transitions.withJoin();
+        for (var model : VssdvModel.models()) {
+            final var modelStates = model.states();
+            final var modelEvents = model.events();
+
+            // Регион модели – цепочка: i-е событие переводит из i-го состояния в (i + 1)-е
+            fork.target(modelStates.get(0));
+            for (int i = 0; i < modelEvents.size(); i++) {
+                transitions.withExternal()
+                           .source(modelStates.get(i))
+                           .target(modelStates.get(i + 1))
+                           .event(modelEvents.get(i));
+            }
+            join.source(modelStates.get(modelStates.size() - 1));
+        }
+        join.target(VssdvStates.VSSDV_JOIN_STATE);
+
+        // @formatter:off
+        // region VSSDV
+        transitions
+                .withExternal()
+                    .source(VssdvStates.VSSDV_JOIN_STATE)
+                    .target(VssdvStates.VSSDV_CALCULATION_STARTED)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_CALCULATION_STARTED)
+                    .target(VssdvStates.VSSDV_DATA_PREPARED)
+                    .event(VssdvEvents.VSSDV_DATA_PREPARED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_DATA_PREPARED)
+                    .target(VssdvStates.VSSDV_DATA_COPIED_TO_STAGED)
+                    .event(VssdvEvents.VSSDV_DATA_COPIED_TO_STAGED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_DATA_COPIED_TO_STAGED)
+                    .target(VssdvStates.VSSDV_ETL_START)
+                    .event(VssdvEvents.VSSDV_ETL_START_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_ETL_START)
+                    .target(VssdvStates.VSSDV_ETL_SENT_TO_DRP)
+                    .event(VssdvEvents.VSSDV_ETL_SENT_TO_DRP_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_ETL_SENT_TO_DRP)
+                    .target(VssdvStates.VSSDV_ETL_ACCEPTED)
+                    .event(VssdvEvents.VSSDV_ETL_ACCEPTED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_ETL_ACCEPTED)
+                    .target(VssdvStates.VSSDV_ETL_COMPLETED)
+                    .event(VssdvEvents.VSSDV_ETL_COMPLETED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_ETL_COMPLETED)
+                    .target(VssdvStates.VSSDV_CALCULATION_START)
+                    .event(VssdvEvents.VSSDV_CALCULATION_START_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_CALCULATION_START)
+                    .target(VssdvStates.VSSDV_CALCULATION_SENT_TO_DRP)
+                    .event(VssdvEvents.VSSDV_CALCULATION_SENT_TO_DRP_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_CALCULATION_SENT_TO_DRP)
+                    .target(VssdvStates.VSSDV_CALCULATION_ACCEPTED)
+                    .event(VssdvEvents.VSSDV_CALCULATION_ACCEPTED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_CALCULATION_ACCEPTED)
+                    .target(VssdvStates.VSSDV_CALCULATION_COMPLETED)
+                    .event(VssdvEvents.VSSDV_CALCULATION_COMPLETED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_CALCULATION_COMPLETED)
+                    .target(VssdvStates.VSSDV_REVERSED_ETL_START)
+                    .event(VssdvEvents.VSSDV_REVERSED_ETL_START_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_REVERSED_ETL_START)
+                    .target(VssdvStates.VSSDV_REVERSED_ETL_SENT_TO_DRP)
+                    .event(VssdvEvents.VSSDV_REVERSED_ETL_SENT_TO_DRP_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_REVERSED_ETL_SENT_TO_DRP)
+                    .target(VssdvStates.VSSDV_REVERSED_ETL_ACCEPTED)
+                    .event(VssdvEvents.VSSDV_REVERSED_ETL_ACCEPTED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_REVERSED_ETL_ACCEPTED)
+                    .target(VssdvStates.VSSDV_REVERSED_ETL_COMPLETED)
+                    .event(VssdvEvents.VSSDV_REVERSED_ETL_COMPLETED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_REVERSED_ETL_COMPLETED)
+                    .target(VssdvStates.VSSDV_DATA_COPIED_FROM_STAGED)
+                    .event(VssdvEvents.VSSDV_DATA_COPIED_FROM_STAGED_EVENT)
+                .and()
+                .withExternal()
+                    .source(VssdvStates.VSSDV_DATA_COPIED_FROM_STAGED)
+                    .target(VssdvStates.VSSDV_CALCULATION_FINISHED)
+                    .event(VssdvEvents.VSSDV_CALCULATION_FINISHED_EVENT);
+        // endregion
+        // @formatter:on
+
+        fromEach(transitions, errorSources, VssdvEvents.CALCULATION_ERROR_EVENT, VssdvStates.CALCULATION_ERROR);
+    }
+
+    // Регионы моделей покрывает переход из CALCULATION_STARTED, JOIN и конечные состояния событий не ждут
+    @NotNull
+    public static Set<VssdvStates> errorSources() {
+        final var sources = VssdvStates.values()
+                .stream()
+                .filter(s -> s.region() == MAIN)
+                .collect(toCollection(HashSet::new));
+        sources.removeAll(Set.of(VssdvStates.VSSDV_JOIN_STATE,
+                                 VssdvStates.VSSDV_CALCULATION_FINISHED,
+                                 VssdvStates.CALCULATION_ERROR));
+        return sources;
+    }
+
+    // VAR_MODEL -> "Var Model"
+    @NotNull
+    private static String regionName(@NotNull VssdvModel model) {
+        return stream(model.name().split("_"))
+                .map(word -> word.charAt(0) + word.substring(1).toLowerCase())
+                .collect(joining(" "));
+    }
+}
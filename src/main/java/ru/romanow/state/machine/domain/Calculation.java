@@ -13,7 +13,9 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -29,12 +31,16 @@ import ru.romanow.state.machine.domain.enums.CalculationType;
 @Setter
 @Accessors(chain = true)
 @Entity
-@Table(name = "calculation")
+@Table(name = "calculation",
+        uniqueConstraints = @UniqueConstraint(name = "uk_calculation_uid", columnNames = "uid"))
 @EntityListeners(AuditingEntityListener.class)
 public class Calculation {
 
+    // Sequence с pooled-оптимизатором: id выделяются блоками без round-trip на каждую запись,
+    // с IDENTITY Hibernate не может группировать insert в JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_calculation")
+    @SequenceGenerator(name = "seq_calculation", sequenceName = "seq_calculation", allocationSize = 50)
     private Long id;
 
     @Column(name = "uid", nullable = false, updatable = false)
@@ -0,0 +1,95 @@
+package ru.romanow.state.machine.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ForeignKey;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.OneToOne;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Последнее состояние расчета, одна строка на расчет. Обновляется в той же транзакции, что и запись
+ * в {@link CalculationStatus}, которая остается полной историей переходов.
+ */
+@Getter
+@Setter
+@Accessors(chain = true)
+@Entity
+@Table(name = "calculation_current_state")
+public class CalculationCurrentState {
+
+    // Восстановление State Machine идет по uid расчета, поэтому он же первичный ключ
+    @Id
+    @Column(name = "calculation_uid", nullable = false, updatable = false)
+    private UUID calculationUid;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "calculation_id", nullable = false,
+            foreignKey = @ForeignKey(name = "fk_calculation_current_state_calculation_id"))
+    private Calculation calculation;
+
+    // Заполняется для расчетов, перенесенных из истории до появления state_code
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "state_code")
+    private byte[] stateCode;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "modified_date", nullable = false)
+    private LocalDateTime modifiedDate;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final CalculationCurrentState that = (CalculationCurrentState) o;
+
+        return new EqualsBuilder()
+                .append(calculationUid, that.calculationUid)
+                .append(status, that.status)
+                .append(stateCode, that.stateCode)
+                .append(version, that.version)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder(17, 37)
+                .append(calculationUid)
+                .append(status)
+                .append(stateCode)
+                .append(version)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("calculationUid", calculationUid)
+                .append("status", status)
+                .append("stateCode", stateCode)
+                .append("version", version)
+                .append("modifiedDate", modifiedDate)
+                .toString();
+    }
+
+}
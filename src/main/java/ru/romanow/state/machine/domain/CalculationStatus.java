@@ -8,9 +8,12 @@ import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -24,21 +27,37 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @Setter
 @Accessors(chain = true)
 @Entity
-@Table(name = "calculation_status")
+@Table(name = "calculation_status",
+        uniqueConstraints = @UniqueConstraint(name = "uk_calculation_status_calculation_id_version",
+                                              columnNames = { "calculation_id", "version" }),
+        indexes = @Index(name = "idx_calculation_status_calculation_id_created_date",
+                         columnList = "calculation_id, created_date"))
 @EntityListeners(AuditingEntityListener.class)
 public class CalculationStatus {
 
+    // Sequence с pooled-оптимизатором: id выделяются блоками без round-trip на каждую запись,
+    // с IDENTITY Hibernate не может группировать insert в JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_calculation_status")
+    @SequenceGenerator(name = "seq_calculation_status", sequenceName = "seq_calculation_status", allocationSize = 50)
     private Long id;
 
     @ManyToOne
     @JoinColumn(name = "calculation_id", foreignKey = @ForeignKey(name = "fk_calculation_status_calculation_id"))
     private Calculation calculation;
 
-    @Column(name = "status", nullable = false)
+    // Имена состояний через ';', только у записей, сделанных до появления state_code
+    @Column(name = "status")
     private String status;
 
+    // Состояния, упакованные StateCodec
+    @Column(name = "state_code")
+    private byte[] stateCode;
+
+    // Порядковый номер перехода в рамках расчета, используется для проверки актуальности State Machine в памяти
+    @Column(name = "version")
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_date", nullable = false, updatable = false)
     private LocalDateTime createdDate;
@@ -58,6 +77,8 @@ public class CalculationStatus {
         return new EqualsBuilder()
                 .append(id, that.id)
                 .append(status, that.status)
+                .append(stateCode, that.stateCode)
+                .append(version, that.version)
                 .append(createdDate, that.createdDate)
                 .isEquals();
     }
@@ -67,6 +88,8 @@ public class CalculationStatus {
         return new HashCodeBuilder(17, 37)
                 .append(id)
                 .append(status)
+                .append(stateCode)
+                .append(version)
                 .append(createdDate)
                 .toHashCode();
     }
@@ -76,6 +99,8 @@ public class CalculationStatus {
         return new ToStringBuilder(this)
                 .append("id", id)
                 .append("status", status)
+                .append("stateCode", stateCode)
+                .append("version", version)
                 .append("createdDate", createdDate)
                 .toString();
     }
@@ -0,0 +1,35 @@
+package ru.romanow.state.machine.models;
+
+import java.util.UUID;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+public class BulkResult<T> {
+    private final UUID calculationUid;
+    // Результат обработки расчета, null при ошибке
+    private final T result;
+    // Сообщение об ошибке, остальные расчеты пакета она не прерывает
+    private final String error;
+
+    private BulkResult(@NotNull UUID calculationUid, @Nullable T result, @Nullable String error) {
+        this.calculationUid = calculationUid;
+        this.result = result;
+        this.error = error;
+    }
+
+    @NotNull
+    public static <T> BulkResult<T> success(@NotNull UUID calculationUid, @NotNull T result) {
+        return new BulkResult<>(calculationUid, result, null);
+    }
+
+    @NotNull
+    public static <T> BulkResult<T> failure(@NotNull UUID calculationUid, @NotNull String error) {
+        return new BulkResult<>(calculationUid, null, error);
+    }
+}
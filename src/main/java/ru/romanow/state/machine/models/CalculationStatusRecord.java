@@ -0,0 +1,41 @@
+package ru.romanow.state.machine.models;
+
+import java.util.UUID;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+public class CalculationStatusRecord {
+    private final UUID calculationUid;
+    // Имена состояний через ';' (записи до появления state_code)
+    private final String status;
+    // Состояния, упакованные StateCodec
+    private final byte[] stateCode;
+    private final long version;
+
+    public CalculationStatusRecord(@NotNull UUID calculationUid, @NotNull String status, @Nullable Long version) {
+        this(calculationUid, status, null, version);
+    }
+
+    public CalculationStatusRecord(@NotNull UUID calculationUid, @NotNull byte[] stateCode, @Nullable Long version) {
+        this(calculationUid, null, stateCode, version);
+    }
+
+    public CalculationStatusRecord(
+            @NotNull UUID calculationUid,
+            @Nullable String status,
+            @Nullable byte[] stateCode,
+            @Nullable Long version
+    ) {
+        this.calculationUid = calculationUid;
+        this.status = status;
+        this.stateCode = stateCode;
+        // Записи, сделанные до появления версии, считаются нулевой версией
+        this.version = version != null ? version : 0L;
+    }
+}
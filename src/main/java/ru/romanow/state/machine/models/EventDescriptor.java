@@ -0,0 +1,12 @@
+package ru.romanow.state.machine.models;
+
+// Событие State Machine. У enum ordinal() и name() уже есть, события регионов, созданные по шаблону,
+// реализуют их сами
+public interface EventDescriptor {
+
+    // Порядковый номер среди всех событий типа расчета, с 0 без пропусков
+    int ordinal();
+
+    String name();
+
+}
@@ -0,0 +1,60 @@
+package ru.romanow.state.machine.models;
+
+import java.util.UUID;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+public class EventTicket {
+    private final UUID ticket;
+    private final UUID calculationUid;
+    private final Status status;
+    // Результат применения событий, только для COMPLETED
+    private final SendEventsResult result;
+    // Сообщение об ошибке, только для FAILED
+    private final String error;
+
+    private EventTicket(
+            @NotNull UUID ticket,
+            @NotNull UUID calculationUid,
+            @NotNull Status status,
+            @Nullable SendEventsResult result,
+            @Nullable String error
+    ) {
+        this.ticket = ticket;
+        this.calculationUid = calculationUid;
+        this.status = status;
+        this.result = result;
+        this.error = error;
+    }
+
+    @NotNull
+    public static EventTicket pending(@NotNull UUID ticket, @NotNull UUID calculationUid) {
+        return new EventTicket(ticket, calculationUid, Status.PENDING, null, null);
+    }
+
+    @NotNull
+    public static EventTicket completed(@NotNull UUID ticket, @NotNull UUID calculationUid,
+                                        @NotNull SendEventsResult result) {
+        return new EventTicket(ticket, calculationUid, Status.COMPLETED, result, null);
+    }
+
+    @NotNull
+    public static EventTicket failed(@NotNull UUID ticket, @NotNull UUID calculationUid, @NotNull String error) {
+        return new EventTicket(ticket, calculationUid, Status.FAILED, null, error);
+    }
+
+    public enum Status {
+        // События в почтовом ящике расчета или переход еще не записан в БД
+        PENDING,
+        // События обработаны и переходы записаны в БД
+        COMPLETED,
+        // Ошибка при восстановлении State Machine, применении событий или записи в БД
+        FAILED
+    }
+}
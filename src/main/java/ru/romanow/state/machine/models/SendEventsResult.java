@@ -0,0 +1,26 @@
+package ru.romanow.state.machine.models;
+
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+public class SendEventsResult {
+    // События, принятые State Machine, в порядке применения
+    private final List<String> accepted;
+    // Первое непринятое событие, следующие за ним не отправлялись
+    private final String rejected;
+    // Состояния State Machine после применения событий
+    private final List<String> states;
+
+    public SendEventsResult(@NotNull List<String> accepted, @Nullable String rejected, @NotNull List<String> states) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.states = states;
+    }
+}
@@ -1,13 +1,22 @@
 package ru.romanow.state.machine.models;
 
+// Состояние State Machine. У enum ordinal() и name() уже есть, состояния регионов, созданные по шаблону,
+// реализуют их сами
 public interface StateDescriptor {
 
-    StateMachineType type();
+    // Регион главной State Machine
+    int MAIN = 0;
 
-    enum StateMachineType {
-        MAIN,
-        VAR_MODEL,
-        BLACK_MODEL
-    }
+    // Регион состояния: MAIN или номер региона с 1, в порядке номеров регионы пишутся в state_code
+    int region();
+
+    // Код состояния в своем регионе для хранения в БД (1..255). Не зависит от порядка состояний,
+    // коды нельзя менять и переиспользовать
+    int code();
+
+    // Порядковый номер среди всех состояний типа расчета, с 0 без пропусков
+    int ordinal();
+
+    String name();
 
 }
@@ -1,6 +1,9 @@
 package ru.romanow.state.machine.models.cashflow;
 
-public enum CashFlowEvents {
+import ru.romanow.state.machine.models.EventDescriptor;
+
+public enum CashFlowEvents
+        implements EventDescriptor {
     DATA_PREPARED_EVENT,              // CALCULATION_STARTED (init) ->   DATA_PREPARED_EVENT
 
     DATA_COPIED_TO_STAGED_EVENT,      // DATA_PREPARED_EVENT        ->   DATA_COPIED_TO_STAGED
@@ -5,40 +5,45 @@ import ru.romanow.state.machine.models.StateDescriptor;
 
 public enum CashFlowStates
         implements StateDescriptor {
-    CALCULATION_STARTED,       // Начальное состояние
+    CALCULATION_STARTED(1),       // Начальное состояние
 
-    DATA_PREPARED,             // Выполнены условия для старта расчета
+    DATA_PREPARED(2),             // Выполнены условия для старта расчета
 
-    DATA_COPIED_TO_STAGED,     // Данные скопированы в схему staged
+    DATA_COPIED_TO_STAGED(3),     // Данные скопированы в схему staged
 
-    ETL_START,                 // Старт загрузки в DRP
-    ETL_SENT_TO_DRP,           //   – Отправлен запрос в DRP
-    ETL_ACCEPTED,              //   – DRP приступил к выполнению
-    ETL_COMPLETED,             // Все файлы выгружены в DRP
+    ETL_START(4),                 // Старт загрузки в DRP
+    ETL_SENT_TO_DRP(5),           //   – Отправлен запрос в DRP
+    ETL_ACCEPTED(6),              //   – DRP приступил к выполнению
+    ETL_COMPLETED(7),             // Все файлы выгружены в DRP
 
-    CALCULATION_START,         // Начало расчета в DRP
-    CALCULATION_SENT_TO_DRP,   //   – Отправлен запрос в DRP
-    CALCULATION_ACCEPTED,      //   – DRP приступил к выполнению
-    CALCULATION_COMPLETED,     // Окончание расчета в DRP
+    CALCULATION_START(8),         // Начало расчета в DRP
+    CALCULATION_SENT_TO_DRP(9),   //   – Отправлен запрос в DRP
+    CALCULATION_ACCEPTED(10),     //   – DRP приступил к выполнению
+    CALCULATION_COMPLETED(11),    // Окончание расчета в DRP
 
-    REVERSED_ETL_START,        // Начало загрузки результатов из DRP
-    REVERSED_ETL_SENT_TO_DRP,  //   – Отправлен запрос в DRP
-    REVERSED_ETL_ACCEPTED,     //   – DRP приступил к выполнению
-    REVERSED_ETL_COMPLETED,    // Окончание загрузки результатов из DRP
+    REVERSED_ETL_START(12),       // Начало загрузки результатов из DRP
+    REVERSED_ETL_SENT_TO_DRP(13), //   – Отправлен запрос в DRP
+    REVERSED_ETL_ACCEPTED(14),    //   – DRP приступил к выполнению
+    REVERSED_ETL_COMPLETED(15),   // Окончание загрузки результатов из DRP
 
-    DATA_COPIED_FROM_STAGED,   // Данные скопированы из staged схемы
+    DATA_COPIED_FROM_STAGED(16),  // Данные скопированы из staged схемы
 
-    CALCULATION_FINISHED,      // Расчет завершен
+    CALCULATION_FINISHED(17),     // Расчет завершен
 
-    CALCULATION_ERROR;         // Расчет завершился с ошибкой
+    CALCULATION_ERROR(18);        // Расчет завершился с ошибкой
 
-    final StateMachineType descriptor;
-    CashFlowStates() {
-        this.descriptor = StateMachineType.MAIN;
+    final int code;
+    CashFlowStates(int code) {
+        this.code = code;
     }
 
     @Override
-    public StateMachineType type() {
-        return descriptor;
+    public int region() {
+        return MAIN;
+    }
+
+    @Override
+    public int code() {
+        return code;
     }
 }
@@ -1,88 +1,116 @@
 package ru.romanow.state.machine.models.vssdv;
 
-public enum VssdvEvents {
-    // region Var Model
-    // #################################
-    // ########### VaR Model ###########
-    // #################################
-    VAR_MODEL_DATA_PREPARED_EVENT,               // CALCULATION_STARTED (init)             ->   VAR_MODEL_DATA_PREPARED
-
-    VAR_MODEL_DATA_COPIED_TO_STAGED_EVENT,       // VAR_MODEL_DATA_PREPARED_EVENT          ->   VAR_MODEL_DATA_COPIED_TO_STAGED
-
-    VAR_MODEL_ETL_START_EVENT,                   // VAR_MODEL_DATA_COPIED_TO_STAGED        ->   VAR_MODEL_ETL_START
-    VAR_MODEL_ETL_SENT_TO_DRP_EVENT,             // VAR_MODEL_ETL_START                    ->   VAR_MODEL_ETL_SENT_TO_DRP
-    VAR_MODEL_ETL_ACCEPTED_EVENT,                // VAR_MODEL_ETL_SENT_TO_DRP              ->   VAR_MODEL_ETL_ACCEPTED
-    VAR_MODEL_ETL_COMPLETED_EVENT,               // VAR_MODEL_ETL_ACCEPTED                 ->   VAR_MODEL_ETL_COMPLETED
-
-    VAR_MODEL_CALCULATION_START_EVENT,           // VAR_MODEL_ETL_COMPLETED                ->   VAR_MODEL_CALCULATION_START
-    VAR_MODEL_CALCULATION_SENT_TO_DRP_EVENT,     // VAR_MODEL_CALCULATION_START            ->   VAR_MODEL_CALCULATION_SENT_TO_DRP
-    VAR_MODEL_CALCULATION_ACCEPTED_EVENT,        // VAR_MODEL_CALCULATION_SENT_TO_DRP      ->   VAR_MODEL_CALCULATION_ACCEPTED
-    VAR_MODEL_CALCULATION_COMPLETED_EVENT,       // VAR_MODEL_CALCULATION_ACCEPTED         ->   VAR_MODEL_CALCULATION_COMPLETED
-
-    VAR_MODEL_REVERSED_ETL_START_EVENT,          // VAR_MODEL_CALCULATION_COMPLETED        ->   VAR_MODEL_REVERSED_ETL_START
-    VAR_MODEL_REVERSED_ETL_SENT_TO_DRP_EVENT,    // VAR_MODEL_REVERSED_ETL_START           ->   VAR_MODEL_REVERSED_ETL_SENT_TO_DRP
-    VAR_MODEL_REVERSED_ETL_ACCEPTED_EVENT,       // VAR_MODEL_REVERSED_ETL_SENT_TO_DRP     ->   VAR_MODEL_REVERSED_ETL_ACCEPTED
-    VAR_MODEL_REVERSED_ETL_COMPLETED_EVENT,      // VAR_MODEL_REVERSED_ETL_ACCEPTED        ->   VAR_MODEL_REVERSED_ETL_COMPLETED
-
-    VAR_MODEL_DATA_COPIED_FROM_STAGED_EVENT,      // VAR_MODEL_REVERSED_ETL_COMPLETED      ->   VAR_MODEL_DATA_COPIED_FROM_STAGED
-
-    VAR_MODEL_CALCULATION_FINISHED_EVENT,         // VAR_MODEL_DATA_COPIED_FROM_STAGED     ->   VAR_MODEL_CALCULATION_FINISHED
-    // endregion
-
-    // region Black Model
-    // #################################
-    // ########## Black Model ##########
-    // #################################
-    BLACK_MODEL_DATA_PREPARED_EVENT,              // CALCULATION_STARTED (init)             ->   BLACK_MODEL_DATA_PREPARED
-
-    BLACK_MODEL_DATA_COPIED_TO_STAGED_EVENT,      // BLACK_MODEL_DATA_PREPARED_EVENT        ->   BLACK_MODEL_DATA_COPIED_TO_STAGED
-
-    BLACK_MODEL_ETL_START_EVENT,                  // BLACK_MODEL_DATA_COPIED_TO_STAGED      ->   BLACK_MODEL_ETL_START
-    BLACK_MODEL_ETL_SENT_TO_DRP_EVENT,            // BLACK_MODEL_ETL_START                  ->   BLACK_MODEL_ETL_SENT_TO_DRP
-    BLACK_MODEL_ETL_ACCEPTED_EVENT,               // BLACK_MODEL_ETL_SENT_TO_DRP            ->   BLACK_MODEL_ETL_ACCEPTED
-    BLACK_MODEL_ETL_COMPLETED_EVENT,              // BLACK_MODEL_ETL_ACCEPTED               ->   BLACK_MODEL_ETL_COMPLETED
-
-    BLACK_MODEL_CALCULATION_START_EVENT,          // BLACK_MODEL_ETL_COMPLETED              ->   BLACK_MODEL_CALCULATION_START
-    BLACK_MODEL_CALCULATION_SENT_TO_DRP_EVENT,    // BLACK_MODEL_CALCULATION_START          ->   BLACK_MODEL_CALCULATION_SENT_TO_DRP
-    BLACK_MODEL_CALCULATION_ACCEPTED_EVENT,       // BLACK_MODEL_CALCULATION_SENT_TO_DRP    ->   BLACK_MODEL_CALCULATION_ACCEPTED
-    BLACK_MODEL_CALCULATION_COMPLETED_EVENT,      // BLACK_MODEL_CALCULATION_ACCEPTED       ->   BLACK_MODEL_CALCULATION_COMPLETED
-
-    BLACK_MODEL_REVERSED_ETL_START_EVENT,         // BLACK_MODEL_CALCULATION_COMPLETED      ->   BLACK_MODEL_REVERSED_ETL_START
-    BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP_EVENT,   // BLACK_MODEL_REVERSED_ETL_START         ->   BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP
-    BLACK_MODEL_REVERSED_ETL_ACCEPTED_EVENT,      // BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP   ->   BLACK_MODEL_REVERSED_ETL_ACCEPTED
-    BLACK_MODEL_REVERSED_ETL_COMPLETED_EVENT,     // BLACK_MODEL_REVERSED_ETL_ACCEPTED      ->   BLACK_MODEL_REVERSED_ETL_COMPLETED
-
-    BLACK_MODEL_DATA_COPIED_FROM_STAGED_EVENT,    // BLACK_MODEL_REVERSED_ETL_COMPLETED     ->   BLACK_MODEL_DATA_COPIED_FROM_STAGED
-
-    BLACK_MODEL_CALCULATION_FINISHED_EVENT,       // BLACK_MODEL_DATA_COPIED_FROM_STAGED    ->   BLACK_MODEL_CALCULATION_FINISHED
-    // endregion
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import ru.romanow.state.machine.models.EventDescriptor;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+
+/**
+ * События VSSDV. События главной State Machine – константы, события регионов моделей создает {@link VssdvModel}
+ * по шаблону {@link VssdvModelEvents}. Как и {@link VssdvStates}, события существуют в единственном экземпляре.
+ */
+public final class VssdvEvents
+        implements EventDescriptor {
+    private static final List<VssdvEvents> MAIN_EVENTS = new ArrayList<>();
 
     // region VSSDV
     // #################################
     // ############ VSSDV ##############
     // #################################
-    VSSDV_DATA_PREPARED_EVENT,              // VAR & BLACK MODELS CALCULATION_FINISHED      ->   VSSDV_DATA_PREPARED
-
-    VSSDV_DATA_COPIED_TO_STAGED_EVENT,      // VSSDV_DATA_PREPARED_EVENT                    ->   VSSDV_DATA_COPIED_TO_STAGED
-
-    VSSDV_ETL_START_EVENT,                  // VSSDV_DATA_COPIED_TO_STAGED                  ->   VSSDV_ETL_START
-    VSSDV_ETL_SENT_TO_DRP_EVENT,            // VSSDV_ETL_START                              ->   VSSDV_ETL_SENT_TO_DRP
-    VSSDV_ETL_ACCEPTED_EVENT,               // VSSDV_ETL_SENT_TO_DRP                        ->   VSSDV_ETL_ACCEPTED
-    VSSDV_ETL_COMPLETED_EVENT,              // VSSDV_ETL_ACCEPTED                           ->   VSSDV_ETL_COMPLETED
-
-    VSSDV_CALCULATION_START_EVENT,          // VSSDV_ETL_COMPLETED                          ->   VSSDV_CALCULATION_START
-    VSSDV_CALCULATION_SENT_TO_DRP_EVENT,    // VSSDV_CALCULATION_START                      ->   VSSDV_CALCULATION_SENT_TO_DRP
-    VSSDV_CALCULATION_ACCEPTED_EVENT,       // VSSDV_CALCULATION_SENT_TO_DRP                ->   VSSDV_CALCULATION_ACCEPTED
-    VSSDV_CALCULATION_COMPLETED_EVENT,      // VSSDV_CALCULATION_ACCEPTED                   ->   VSSDV_CALCULATION_COMPLETED
-
-    VSSDV_REVERSED_ETL_START_EVENT,         // VSSDV_CALCULATION_COMPLETED                  ->   VSSDV_REVERSED_ETL_START
-    VSSDV_REVERSED_ETL_SENT_TO_DRP_EVENT,   // VSSDV_REVERSED_ETL_START                     ->   VSSDV_REVERSED_ETL_SENT_TO_DRP
-    VSSDV_REVERSED_ETL_ACCEPTED_EVENT,      // VSSDV_REVERSED_ETL_SENT_TO_DRP               ->   VSSDV_REVERSED_ETL_ACCEPTED
-    VSSDV_REVERSED_ETL_COMPLETED_EVENT,         // VSSDV_REVERSED_ETL_ACCEPTED              ->   VSSDV_REVERSED_ETL_COMPLETED
-
-    VSSDV_DATA_COPIED_FROM_STAGED_EVENT,    // VSSDV_REVERSED_ETL_COMPLETED                 ->   VSSDV_DATA_COPIED_FROM_STAGED
-    VSSDV_CALCULATION_FINISHED_EVENT,       // VSSDV_DATA_COPIED_FROM_STAGED                ->   VSSDV_CALCULATION_FINISHED (end)
+    // Цепочка после join регионов всех моделей: VSSDV_CALCULATION_STARTED -> ... -> VSSDV_CALCULATION_FINISHED (end)
+    public static final VssdvEvents VSSDV_DATA_PREPARED_EVENT = main("VSSDV_DATA_PREPARED_EVENT");
+    public static final VssdvEvents VSSDV_DATA_COPIED_TO_STAGED_EVENT = main("VSSDV_DATA_COPIED_TO_STAGED_EVENT");
+
+    // ETL
+    public static final VssdvEvents VSSDV_ETL_START_EVENT = main("VSSDV_ETL_START_EVENT");
+    public static final VssdvEvents VSSDV_ETL_SENT_TO_DRP_EVENT = main("VSSDV_ETL_SENT_TO_DRP_EVENT");
+    public static final VssdvEvents VSSDV_ETL_ACCEPTED_EVENT = main("VSSDV_ETL_ACCEPTED_EVENT");
+    public static final VssdvEvents VSSDV_ETL_COMPLETED_EVENT = main("VSSDV_ETL_COMPLETED_EVENT");
+
+    // Calculation
+    public static final VssdvEvents VSSDV_CALCULATION_START_EVENT = main("VSSDV_CALCULATION_START_EVENT");
+    public static final VssdvEvents VSSDV_CALCULATION_SENT_TO_DRP_EVENT = main("VSSDV_CALCULATION_SENT_TO_DRP_EVENT");
+    public static final VssdvEvents VSSDV_CALCULATION_ACCEPTED_EVENT = main("VSSDV_CALCULATION_ACCEPTED_EVENT");
+    public static final VssdvEvents VSSDV_CALCULATION_COMPLETED_EVENT = main("VSSDV_CALCULATION_COMPLETED_EVENT");
+
+    // Reverse ETL
+    public static final VssdvEvents VSSDV_REVERSED_ETL_START_EVENT = main("VSSDV_REVERSED_ETL_START_EVENT");
+    public static final VssdvEvents VSSDV_REVERSED_ETL_SENT_TO_DRP_EVENT = main("VSSDV_REVERSED_ETL_SENT_TO_DRP_EVENT");
+    public static final VssdvEvents VSSDV_REVERSED_ETL_ACCEPTED_EVENT = main("VSSDV_REVERSED_ETL_ACCEPTED_EVENT");
+    public static final VssdvEvents VSSDV_REVERSED_ETL_COMPLETED_EVENT = main("VSSDV_REVERSED_ETL_COMPLETED_EVENT");
+
+    public static final VssdvEvents VSSDV_DATA_COPIED_FROM_STAGED_EVENT = main("VSSDV_DATA_COPIED_FROM_STAGED_EVENT");
+    public static final VssdvEvents VSSDV_CALCULATION_FINISHED_EVENT = main("VSSDV_CALCULATION_FINISHED_EVENT");
     // endregion
 
-    CALCULATION_ERROR_EVENT                 // Every State                                  ->   CALCULATION_ERROR (end)
+    // Every State -> CALCULATION_ERROR (end)
+    public static final VssdvEvents CALCULATION_ERROR_EVENT = main("CALCULATION_ERROR_EVENT");
+
+    private final String name;
+    private final int ordinal;
+
+    VssdvEvents(@NotNull String name, int ordinal) {
+        this.name = name;
+        this.ordinal = ordinal;
+    }
+
+    @NotNull
+    private static VssdvEvents main(@NotNull String name) {
+        final var event = new VssdvEvents(name, MAIN_EVENTS.size());
+        MAIN_EVENTS.add(event);
+        return event;
+    }
+
+    // События моделей нумеруются после событий главной State Machine
+    static int mainEvents() {
+        return MAIN_EVENTS.size();
+    }
+
+    @Override
+    public int ordinal() {
+        return ordinal;
+    }
+
+    @NotNull
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // Все события в порядке ordinal(): главной State Machine, затем моделей в порядке регионов
+    @NotNull
+    public static List<VssdvEvents> values() {
+        return Values.VALUES;
+    }
+
+    @NotNull
+    public static VssdvEvents valueOf(@NotNull String name) {
+        final var event = Values.BY_NAME.get(name);
+        if (event == null) {
+            throw new IllegalArgumentException("No VSSDV event " + name);
+        }
+        return event;
+    }
+
+    // События моделей создает VssdvModel, поэтому полный список собирается при первом обращении к нему
+    private static final class Values {
+        private static final List<VssdvEvents> VALUES;
+        private static final Map<String, VssdvEvents> BY_NAME;
+
+        static {
+            final var values = new ArrayList<>(MAIN_EVENTS);
+            VssdvModel.models().forEach(model -> values.addAll(model.events()));
+            VALUES = List.copyOf(values);
+            BY_NAME = VALUES.stream().collect(toUnmodifiableMap(VssdvEvents::name, identity()));
+        }
+    }
 }
@@ -0,0 +1,115 @@
+package ru.romanow.state.machine.models.vssdv;
+
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Arrays.stream;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static java.util.stream.Collectors.toUnmodifiableMap;
+import static java.util.stream.IntStream.range;
+
+/**
+ * Модель VSSDV – регион главной State Machine, запущенный из {@link VssdvStates#CALCULATION_STARTED}. Состояния
+ * и события всех моделей строятся по одному шаблону {@link VssdvModelStates} / {@link VssdvModelEvents}:
+ * {@code <MODEL>_<STATE>} и {@code <MODEL>_<EVENT>}. Новая модель – новое имя в {@link #MODELS}, регион, fork, join
+ * и хранение в state_code (номер региона и код состояния в шаблоне) берутся отсюда.
+ */
+public final class VssdvModel {
+    // Модели в порядке регионов: i-я модель – регион i + 1
+    private static final List<VssdvModel> MODELS = create("VAR_MODEL", "BLACK_MODEL");
+    private static final Map<String, VssdvModel> BY_NAME = MODELS
+            .stream()
+            .collect(toUnmodifiableMap(VssdvModel::name, identity()));
+
+    private final String name;
+    private final int region;
+    private final List<VssdvStates> states;
+    private final List<VssdvEvents> events;
+
+    private VssdvModel(@NotNull String name, int region) {
+        this.name = name;
+        this.region = region;
+
+        // Состояния и события моделей нумеруются подряд после главной State Machine, блоками по размеру шаблона
+        final var templateStates = VssdvModelStates.values();
+        final int firstState = VssdvStates.mainStates() + (region - 1) * templateStates.length;
+        this.states = stream(templateStates)
+                .map(state -> new VssdvStates(name + "_" + state.name(), firstState + state.ordinal(),
+                                              region, state.code()))
+                .collect(toUnmodifiableList());
+
+        final var templateEvents = VssdvModelEvents.values();
+        final int firstEvent = VssdvEvents.mainEvents() + (region - 1) * templateEvents.length;
+        this.events = stream(templateEvents)
+                .map(event -> new VssdvEvents(name + "_" + event.name(), firstEvent + event.ordinal()))
+                .collect(toUnmodifiableList());
+    }
+
+    @NotNull
+    private static List<VssdvModel> create(@NotNull String... names) {
+        return range(0, names.length)
+                .mapToObj(i -> new VssdvModel(names[i], i + 1))
+                .collect(toUnmodifiableList());
+    }
+
+    @NotNull
+    public static List<VssdvModel> models() {
+        return MODELS;
+    }
+
+    @NotNull
+    public static VssdvModel of(@NotNull String name) {
+        final var model = BY_NAME.get(name);
+        if (model == null) {
+            throw new IllegalArgumentException("No VSSDV model " + name);
+        }
+        return model;
+    }
+
+    // Модель по номеру региона состояния
+    @NotNull
+    public static VssdvModel of(int region) {
+        if (region < 1 || region > MODELS.size()) {
+            throw new IllegalArgumentException("No VSSDV model in region " + region);
+        }
+        return MODELS.get(region - 1);
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    public int region() {
+        return region;
+    }
+
+    // Состояния региона в порядке шаблона: первое – начальное, последнее – конечное
+    @NotNull
+    public List<VssdvStates> states() {
+        return states;
+    }
+
+    // События региона в порядке шаблона: i-е событие переводит модель из i-го состояния в (i + 1)-е
+    @NotNull
+    public List<VssdvEvents> events() {
+        return events;
+    }
+
+    @NotNull
+    public VssdvStates state(@NotNull VssdvModelStates state) {
+        return states.get(state.ordinal());
+    }
+
+    @NotNull
+    public VssdvEvents event(@NotNull VssdvModelEvents event) {
+        return events.get(event.ordinal());
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
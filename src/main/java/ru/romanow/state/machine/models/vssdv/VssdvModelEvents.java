@@ -0,0 +1,28 @@
+package ru.romanow.state.machine.models.vssdv;
+
+// Шаблон событий региона модели VSSDV: i-е событие переводит модель из i-го состояния VssdvModelStates
+// в (i + 1)-е. Событие модели – VssdvEvents с именем <MODEL>_<EVENT>
+public enum VssdvModelEvents {
+    DATA_PREPARED_EVENT,               // CALCULATION_STARTED (init)   ->   DATA_PREPARED
+
+    DATA_COPIED_TO_STAGED_EVENT,       // DATA_PREPARED                ->   DATA_COPIED_TO_STAGED
+
+    ETL_START_EVENT,                   // DATA_COPIED_TO_STAGED        ->   ETL_START
+    ETL_SENT_TO_DRP_EVENT,             // ETL_START                    ->   ETL_SENT_TO_DRP
+    ETL_ACCEPTED_EVENT,                // ETL_SENT_TO_DRP              ->   ETL_ACCEPTED
+    ETL_COMPLETED_EVENT,               // ETL_ACCEPTED                 ->   ETL_COMPLETED
+
+    CALCULATION_START_EVENT,           // ETL_COMPLETED                ->   CALCULATION_START
+    CALCULATION_SENT_TO_DRP_EVENT,     // CALCULATION_START            ->   CALCULATION_SENT_TO_DRP
+    CALCULATION_ACCEPTED_EVENT,        // CALCULATION_SENT_TO_DRP      ->   CALCULATION_ACCEPTED
+    CALCULATION_COMPLETED_EVENT,       // CALCULATION_ACCEPTED         ->   CALCULATION_COMPLETED
+
+    REVERSED_ETL_START_EVENT,          // CALCULATION_COMPLETED        ->   REVERSED_ETL_START
+    REVERSED_ETL_SENT_TO_DRP_EVENT,    // REVERSED_ETL_START           ->   REVERSED_ETL_SENT_TO_DRP
+    REVERSED_ETL_ACCEPTED_EVENT,       // REVERSED_ETL_SENT_TO_DRP     ->   REVERSED_ETL_ACCEPTED
+    REVERSED_ETL_COMPLETED_EVENT,      // REVERSED_ETL_ACCEPTED        ->   REVERSED_ETL_COMPLETED
+
+    DATA_COPIED_FROM_STAGED_EVENT,     // REVERSED_ETL_COMPLETED       ->   DATA_COPIED_FROM_STAGED
+
+    CALCULATION_FINISHED_EVENT         // DATA_COPIED_FROM_STAGED      ->   CALCULATION_FINISHED (end)
+}
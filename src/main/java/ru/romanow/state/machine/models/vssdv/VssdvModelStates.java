@@ -0,0 +1,42 @@
+package ru.romanow.state.machine.models.vssdv;
+
+// Шаблон региона модели VSSDV: состояния в порядке переходов, первое – начальное, последнее – конечное.
+// Состояние модели – VssdvStates с именем <MODEL>_<STATE>, его код в state_code – код из шаблона
+public enum VssdvModelStates {
+    CALCULATION_STARTED(1),
+
+    DATA_PREPARED(2),
+    DATA_COPIED_TO_STAGED(3),
+
+    // ETL
+    ETL_START(4),
+    ETL_SENT_TO_DRP(5),
+    ETL_ACCEPTED(6),
+    ETL_COMPLETED(7),
+
+    // Calculation
+    CALCULATION_START(8),
+    CALCULATION_SENT_TO_DRP(9),
+    CALCULATION_ACCEPTED(10),
+    CALCULATION_COMPLETED(11),
+
+    // Reverse ETL
+    REVERSED_ETL_START(12),
+    REVERSED_ETL_SENT_TO_DRP(13),
+    REVERSED_ETL_ACCEPTED(14),
+    REVERSED_ETL_COMPLETED(15),
+
+    DATA_COPIED_FROM_STAGED(16),
+    CALCULATION_FINISHED(17);
+
+    private final int code;
+
+    VssdvModelStates(int code) {
+        this.code = code;
+    }
+
+    // Код состояния в регионе модели (1..255), коды нельзя менять и переиспользовать
+    public int code() {
+        return code;
+    }
+}
@@ -1,121 +1,134 @@
 package ru.romanow.state.machine.models.vssdv;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.jetbrains.annotations.NotNull;
 import ru.romanow.state.machine.models.StateDescriptor;
 
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.BLACK_MODEL;
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.MAIN;
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.VAR_MODEL;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toUnmodifiableMap;
 
-public enum VssdvStates
+/**
+ * Состояния VSSDV. Состояния главной State Machine – константы, состояния регионов моделей создает
+ * {@link VssdvModel} по шаблону {@link VssdvModelStates}, поэтому новая модель не требует новых констант.
+ * Как и константы enum, состояния существуют в единственном экземпляре и сравниваются по ссылке,
+ * {@link #values()} и {@link #valueOf(String)} работают со всеми состояниями, включая состояния моделей.
+ */
+public final class VssdvStates
         implements StateDescriptor {
-    CALCULATION_STARTED,
+    private static final List<VssdvStates> MAIN_STATES = new ArrayList<>();
 
-    // region Var Model
+    public static final VssdvStates CALCULATION_STARTED = main("CALCULATION_STARTED", 1);
+
+    // region VSSDV
     // #################################
-    // ########### VaR Model ###########
+    // ############ VSSDV ##############
     // #################################
-    VAR_MODEL_CALCULATION_STARTED(VAR_MODEL),
-    VAR_MODEL_DATA_PREPARED(VAR_MODEL),
-    VAR_MODEL_DATA_COPIED_TO_STAGED(VAR_MODEL),
+    public static final VssdvStates VSSDV_JOIN_STATE = main("VSSDV_JOIN_STATE", 2);
+    public static final VssdvStates VSSDV_CALCULATION_STARTED = main("VSSDV_CALCULATION_STARTED", 3);
+    public static final VssdvStates VSSDV_DATA_PREPARED = main("VSSDV_DATA_PREPARED", 4);
+    public static final VssdvStates VSSDV_DATA_COPIED_TO_STAGED = main("VSSDV_DATA_COPIED_TO_STAGED", 5);
 
     // ETL
-    VAR_MODEL_ETL_START(VAR_MODEL),
-    VAR_MODEL_ETL_SENT_TO_DRP(VAR_MODEL),
-    VAR_MODEL_ETL_ACCEPTED(VAR_MODEL),
-    VAR_MODEL_ETL_COMPLETED(VAR_MODEL),
+    public static final VssdvStates VSSDV_ETL_START = main("VSSDV_ETL_START", 6);
+    public static final VssdvStates VSSDV_ETL_SENT_TO_DRP = main("VSSDV_ETL_SENT_TO_DRP", 7);
+    public static final VssdvStates VSSDV_ETL_ACCEPTED = main("VSSDV_ETL_ACCEPTED", 8);
+    public static final VssdvStates VSSDV_ETL_COMPLETED = main("VSSDV_ETL_COMPLETED", 9);
 
     // Calculation
-    VAR_MODEL_CALCULATION_START(VAR_MODEL),
-    VAR_MODEL_CALCULATION_SENT_TO_DRP(VAR_MODEL),
-    VAR_MODEL_CALCULATION_ACCEPTED(VAR_MODEL),
-    VAR_MODEL_CALCULATION_COMPLETED(VAR_MODEL),
+    public static final VssdvStates VSSDV_CALCULATION_START = main("VSSDV_CALCULATION_START", 10);
+    public static final VssdvStates VSSDV_CALCULATION_SENT_TO_DRP = main("VSSDV_CALCULATION_SENT_TO_DRP", 11);
+    public static final VssdvStates VSSDV_CALCULATION_ACCEPTED = main("VSSDV_CALCULATION_ACCEPTED", 12);
+    public static final VssdvStates VSSDV_CALCULATION_COMPLETED = main("VSSDV_CALCULATION_COMPLETED", 13);
 
     // Reverse ETL
-    VAR_MODEL_REVERSED_ETL_START(VAR_MODEL),
-    VAR_MODEL_REVERSED_ETL_SENT_TO_DRP(VAR_MODEL),
-    VAR_MODEL_REVERSED_ETL_ACCEPTED(VAR_MODEL),
-    VAR_MODEL_REVERSED_ETL_COMPLETED(VAR_MODEL),
+    public static final VssdvStates VSSDV_REVERSED_ETL_START = main("VSSDV_REVERSED_ETL_START", 14);
+    public static final VssdvStates VSSDV_REVERSED_ETL_SENT_TO_DRP = main("VSSDV_REVERSED_ETL_SENT_TO_DRP", 15);
+    public static final VssdvStates VSSDV_REVERSED_ETL_ACCEPTED = main("VSSDV_REVERSED_ETL_ACCEPTED", 16);
+    public static final VssdvStates VSSDV_REVERSED_ETL_COMPLETED = main("VSSDV_REVERSED_ETL_COMPLETED", 17);
 
-    VAR_MODEL_DATA_COPIED_FROM_STAGED(VAR_MODEL),
-    VAR_MODEL_CALCULATION_FINISHED(VAR_MODEL),
+    public static final VssdvStates VSSDV_DATA_COPIED_FROM_STAGED = main("VSSDV_DATA_COPIED_FROM_STAGED", 18);
+    public static final VssdvStates VSSDV_CALCULATION_FINISHED = main("VSSDV_CALCULATION_FINISHED", 19);
     // endregion
 
-    // region Black Model
-    // #################################
-    // ########## Black Model ##########
-    // #################################
-    BLACK_MODEL_CALCULATION_STARTED(BLACK_MODEL),
-    BLACK_MODEL_DATA_PREPARED(BLACK_MODEL),
-    BLACK_MODEL_DATA_COPIED_TO_STAGED(BLACK_MODEL),
+    public static final VssdvStates CALCULATION_ERROR = main("CALCULATION_ERROR", 20);
 
-    // ETL
-    BLACK_MODEL_ETL_START(BLACK_MODEL),
-    BLACK_MODEL_ETL_SENT_TO_DRP(BLACK_MODEL),
-    BLACK_MODEL_ETL_ACCEPTED(BLACK_MODEL),
-    BLACK_MODEL_ETL_COMPLETED(BLACK_MODEL),
-
-    // Calculation
-    BLACK_MODEL_CALCULATION_START(BLACK_MODEL),
-    BLACK_MODEL_CALCULATION_SENT_TO_DRP(BLACK_MODEL),
-    BLACK_MODEL_CALCULATION_ACCEPTED(BLACK_MODEL),
-    BLACK_MODEL_CALCULATION_COMPLETED(BLACK_MODEL),
+    private final String name;
+    private final int ordinal;
+    private final int region;
+    private final int code;
 
-    // Reverse ETL
-    BLACK_MODEL_REVERSED_ETL_START(BLACK_MODEL),
-    BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP(BLACK_MODEL),
-    BLACK_MODEL_REVERSED_ETL_ACCEPTED(BLACK_MODEL),
-    BLACK_MODEL_REVERSED_ETL_COMPLETED(BLACK_MODEL),
-
-    BLACK_MODEL_DATA_COPIED_FROM_STAGED(BLACK_MODEL),
-    BLACK_MODEL_CALCULATION_FINISHED(BLACK_MODEL),
-    // endregion
+    VssdvStates(@NotNull String name, int ordinal, int region, int code) {
+        this.name = name;
+        this.ordinal = ordinal;
+        this.region = region;
+        this.code = code;
+    }
 
-    // region VSSDV
-    // #################################
-    // ############ VSSDV ##############
-    // #################################
-    VSSDV_JOIN_STATE,
-    VSSDV_CALCULATION_STARTED,
-    VSSDV_DATA_PREPARED,
-    VSSDV_DATA_COPIED_TO_STAGED,
+    @NotNull
+    private static VssdvStates main(@NotNull String name, int code) {
+        final var state = new VssdvStates(name, MAIN_STATES.size(), MAIN, code);
+        MAIN_STATES.add(state);
+        return state;
+    }
 
-    // ETL
-    VSSDV_ETL_START,
-    VSSDV_ETL_SENT_TO_DRP,
-    VSSDV_ETL_ACCEPTED,
-    VSSDV_ETL_COMPLETED,
+    // Состояния моделей нумеруются после состояний главной State Machine
+    static int mainStates() {
+        return MAIN_STATES.size();
+    }
 
-    // Calculation
-    VSSDV_CALCULATION_START,
-    VSSDV_CALCULATION_SENT_TO_DRP,
-    VSSDV_CALCULATION_ACCEPTED,
-    VSSDV_CALCULATION_COMPLETED,
+    @Override
+    public int region() {
+        return region;
+    }
 
-    // Reverse ETL
-    VSSDV_REVERSED_ETL_START,
-    VSSDV_REVERSED_ETL_SENT_TO_DRP,
-    VSSDV_REVERSED_ETL_ACCEPTED,
-    VSSDV_REVERSED_ETL_COMPLETED,
+    @Override
+    public int code() {
+        return code;
+    }
 
-    VSSDV_DATA_COPIED_FROM_STAGED,
-    VSSDV_CALCULATION_FINISHED,
-    // endregion
+    @Override
+    public int ordinal() {
+        return ordinal;
+    }
 
-    CALCULATION_ERROR;
+    @NotNull
+    @Override
+    public String name() {
+        return name;
+    }
 
-    private final StateMachineType descriptor;
+    @Override
+    public String toString() {
+        return name;
+    }
 
-    VssdvStates(@NotNull StateMachineType descriptor) {
-        this.descriptor = descriptor;
+    // Все состояния в порядке ordinal(): главной State Machine, затем моделей в порядке регионов
+    @NotNull
+    public static List<VssdvStates> values() {
+        return Values.VALUES;
     }
 
-    VssdvStates() {
-        this(MAIN);
+    @NotNull
+    public static VssdvStates valueOf(@NotNull String name) {
+        final var state = Values.BY_NAME.get(name);
+        if (state == null) {
+            throw new IllegalArgumentException("No VSSDV state " + name);
+        }
+        return state;
     }
 
-    @Override
-    public StateMachineType type() {
-        return descriptor;
+    // Состояния моделей создает VssdvModel, поэтому полный список собирается при первом обращении к нему
+    private static final class Values {
+        private static final List<VssdvStates> VALUES;
+        private static final Map<String, VssdvStates> BY_NAME;
+
+        static {
+            final var values = new ArrayList<>(MAIN_STATES);
+            VssdvModel.models().forEach(model -> values.addAll(model.states()));
+            VALUES = List.copyOf(values);
+            BY_NAME = VALUES.stream().collect(toUnmodifiableMap(VssdvStates::name, identity()));
+        }
     }
 }
@@ -0,0 +1,29 @@
+package ru.romanow.state.machine.repostitory;
+
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.romanow.state.machine.domain.CalculationCurrentState;
+
+public interface CalculationCurrentStateRepository
+        extends JpaRepository<CalculationCurrentState, UUID> {
+
+    // Одним запросом без предварительного select. Строка с более новой версией не перезаписывается
+    // (запись с другого узла или из очереди group commit могла прийти раньше)
+    @Modifying
+    @Query(value = "INSERT INTO calculation_current_state "
+            + "(calculation_uid, calculation_id, status, state_code, version, modified_date) "
+            + "VALUES (:calculationUid, :calculationId, :status, :stateCode, :version, now()) "
+            + "ON CONFLICT (calculation_uid) DO UPDATE "
+            + "SET status = excluded.status, state_code = excluded.state_code, version = excluded.version, "
+            + "modified_date = excluded.modified_date "
+            + "WHERE calculation_current_state.version < excluded.version",
+            nativeQuery = true)
+    void upsert(@Param("calculationUid") UUID calculationUid,
+                @Param("calculationId") Long calculationId,
+                @Param("status") String status,
+                @Param("stateCode") byte[] stateCode,
+                @Param("version") long version);
+}
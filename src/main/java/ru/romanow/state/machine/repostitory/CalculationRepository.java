@@ -3,9 +3,14 @@ package ru.romanow.state.machine.repostitory;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.romanow.state.machine.domain.Calculation;
 
 public interface CalculationRepository
         extends JpaRepository<Calculation, Long> {
     Optional<Calculation> findByUid(UUID uid);
+
+    @Query("select c.id from Calculation c where c.uid = :uid")
+    Optional<Long> findIdByUid(@Param("uid") UUID uid);
 }
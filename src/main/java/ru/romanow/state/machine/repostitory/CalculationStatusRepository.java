@@ -1,19 +1,28 @@
 package ru.romanow.state.machine.repostitory;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.romanow.state.machine.domain.CalculationStatus;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
 
 public interface CalculationStatusRepository
         extends JpaRepository<CalculationStatus, Long> {
 
-    @Query("select cs.status "
+    @Query("select new ru.romanow.state.machine.models.CalculationStatusRecord("
+            + "cs.calculation.uid, cs.status, cs.stateCode, cs.version) "
             + "from CalculationStatus cs "
             + "where cs.calculation.uid = :calculationUid "
             + "order by cs.createdDate desc ")
-    List<String> getCalculationLastState(@Param("calculationUid") UUID calculationUid, Pageable pageable);
+    List<CalculationStatusRecord> getCalculationLastStatus(@Param("calculationUid") UUID calculationUid,
+                                                           Pageable pageable);
+
+    @Query("select max(cs.version) "
+            + "from CalculationStatus cs "
+            + "where cs.calculation.uid = :calculationUid ")
+    Optional<Long> getCalculationLastVersion(@Param("calculationUid") UUID calculationUid);
 }
@@ -1,14 +1,22 @@
 package ru.romanow.state.machine.service;
 
+import io.micrometer.core.instrument.Timer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.springframework.messaging.Message;
 import org.springframework.statemachine.StateMachine;
 import org.springframework.statemachine.StateMachineContext;
+import org.springframework.statemachine.support.DefaultExtendedState;
 import org.springframework.statemachine.persist.AbstractPersistingStateMachineInterceptor;
 import org.springframework.statemachine.persist.StateMachineRuntimePersister;
 import org.springframework.statemachine.state.State;
@@ -16,60 +24,226 @@ import org.springframework.statemachine.support.DefaultStateMachineContext;
 import org.springframework.statemachine.support.StateMachineInterceptor;
 import org.springframework.statemachine.transition.Transition;
 import org.springframework.statemachine.transition.TransitionKind;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
+import ru.romanow.state.machine.models.EventDescriptor;
 import ru.romanow.state.machine.models.StateDescriptor;
-import ru.romanow.state.machine.models.StateDescriptor.StateMachineType;
 
-import static java.lang.String.join;
-import static java.util.List.of;
+import static java.util.Collections.nCopies;
 import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
 import static java.util.UUID.fromString;
-import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.IntStream.range;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.springframework.util.CollectionUtils.isEmpty;
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.MAIN;
+import static ru.romanow.state.machine.models.StateDescriptor.MAIN;
 
 @RequiredArgsConstructor
-public abstract class BaseCustomStateMachinePersist<States extends Enum<States> & StateDescriptor, Events extends Enum<Events>>
+public abstract class BaseCustomStateMachinePersist<States extends StateDescriptor, Events extends EventDescriptor>
         extends AbstractPersistingStateMachineInterceptor<States, Events, String>
         implements StateMachineRuntimePersister<States, Events, String> {
 
     private static final Logger logger = getLogger(BaseCustomStateMachinePersist.class);
     private static final String DELIMITER = ";";
+    private static final String VERSION = "calculationStatusVersion";
 
     private final CalculationStatusService calculationStatusService;
+    private final StateCodec<States> stateCodec;
+    private final TransitionAuditLog auditLog;
+    private final Timer writeTimer;
+
+    // Записи истории, накопленные за пачку событий (sendEvents), по machineId
+    private final Map<String, List<CalculationStatusRecord>> batches = new ConcurrentHashMap<>();
+
+    // Последняя еще не записанная (или записанная с ошибкой) в БД запись истории, по machineId
+    private final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+    // Общие неизменяемые контексты для восстановления, по состоянию: число состояний ограничено конфигурацией,
+    // а число сочетаний состояний регионов растет с числом регионов экспоненциально
+    private final Map<States, StateMachineContext<States, Events>> contexts = new ConcurrentHashMap<>();
 
     @Override
     public void write(StateMachineContext<States, Events> context, String machineId) {
-        logger.info("Write StateMachine '{}' state {}", machineId, context.getState());
-        calculationStatusService.create(fromString(machineId), buildStatus(context));
+        final long start = System.nanoTime();
+        try {
+            writeStatus(context, machineId);
+        } finally {
+            writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void writeStatus(@NotNull StateMachineContext<States, Events> context, @NotNull String machineId) {
+        final var calculationUid = fromString(machineId);
+        final var variables = context.getExtendedState().getVariables();
+
+        // Пока запись не прошла, версия в памяти считается неизвестной: при следующем acquire
+        // State Machine будет полностью восстановлена из БД
+        final var current = (Long) variables.remove(VERSION);
+        final long version = current != null
+                ? current + 1
+                : calculationStatusService.getCalculationLastVersion(calculationUid) + 1;
+
+        final byte[] stateCode = stateCodec.encode(states(context));
+        final var status = new CalculationStatusRecord(calculationUid, stateCode, version);
+        auditLog.publish(machineId, context.getEvent(), stateCode, version, stateCodec);
+
+        final var batch = batches.get(machineId);
+        if (batch != null) {
+            batch.add(status);
+            variables.put(VERSION, version);
+            return;
+        }
+
+        final var written = createAsync(status, pending.get(machineId));
+        if (written.isDone()) {
+            // Синхронная запись: ошибка пробрасывается в State Machine. Переход она не отменяет (Spring State Machine
+            // только пишет ошибку из postStateChange в лог), поэтому ее получит и тот, кто ждет persisted()
+            if (written.isCompletedExceptionally()) {
+                pending.put(machineId, written);
+            } else {
+                pending.remove(machineId);
+            }
+            written.join();
+            variables.put(VERSION, version);
+            return;
+        }
+
+        // Write-behind: версия выставляется сразу, при ошибке записи сбрасывается, если State Machine не ушла
+        // дальше (следующие записи расчета после ошибки тоже не пройдут и сбросят свою версию). Неуспешная запись
+        // остается в pending до восстановления из БД, чтобы ошибку получил и тот, кто ждет ее позже
+        variables.put(VERSION, version);
+        pending.put(machineId, written);
+        written.whenComplete((result, exception) -> {
+            if (exception != null) {
+                variables.remove(VERSION, version);
+            } else {
+                pending.remove(machineId, written);
+            }
+        });
+    }
+
+    // Синхронная реализация бросает ошибку записи из createAsync, а не возвращает ее в future
+    @NotNull
+    private CompletableFuture<Void> createAsync(@NotNull CalculationStatusRecord status,
+                                                @Nullable CompletableFuture<Void> previous) {
+        try {
+            return calculationStatusService.createAsync(status, previous);
+        } catch (RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    // Завершается, когда все переходы State Machine, сделанные до вызова, записаны в БД
+    @NotNull
+    public CompletableFuture<Void> persisted(@NotNull String machineId) {
+        final var written = pending.get(machineId);
+        return written != null ? written.copy() : CompletableFuture.completedFuture(null);
+    }
+
+    // До flushBatch переходы State Machine не пишутся в БД, а накапливаются в памяти
+    public void beginBatch(@NotNull String machineId) {
+        batches.put(machineId, new ArrayList<>());
+    }
+
+    // Отбросить накопленную историю: State Machine будет восстановлена из БД при следующем acquire
+    public void discardBatch(@NotNull String machineId, @NotNull StateMachine<?, ?> stateMachine) {
+        if (batches.remove(machineId) != null) {
+            stateMachine.getExtendedState().getVariables().remove(VERSION);
+        }
+    }
+
+    // Записать накопленную историю одной транзакцией
+    public void flushBatch(@NotNull String machineId, @NotNull StateMachine<?, ?> stateMachine) {
+        final var batch = batches.remove(machineId);
+        if (isEmpty(batch)) {
+            return;
+        }
+        try {
+            // Пачка пишется после еще не записанных переходов write-behind и не пишется, если их запись не прошла
+            final var previous = pending.get(machineId);
+            if (previous != null) {
+                previous.join();
+            }
+            calculationStatusService.create(batch);
+        } catch (RuntimeException exception) {
+            // State Machine в памяти ушла вперед БД, при следующем acquire она будет восстановлена
+            stateMachine.getExtendedState().getVariables().remove(VERSION);
+            throw exception;
+        }
     }
 
     @Override
     public StateMachineContext<States, Events> read(String machineId) {
-        final Optional<String> result = calculationStatusService.getCalculationLastState(fromString(machineId));
+        final Optional<CalculationStatusRecord> result =
+                calculationStatusService.getCalculationLastState(fromString(machineId));
+
+        // State Machine восстанавливается из БД: переходы, запись которых не прошла, отброшены,
+        // и следующие записи от них уже не зависят
+        pending.computeIfPresent(machineId, (id, written) -> written.isCompletedExceptionally() ? null : written);
 
         if (result.isPresent()) {
-            var state = result.get();
-            logger.info("Restore context for StateMachine '{}' with state {}", machineId, state);
-
-            var states = state.split(DELIMITER);
-            var mainState = restoreState(states[0]);
-            final List<StateMachineContext<States, Events>> childrenStates =
-                    range(1, states.length)
-                            .mapToObj(i -> new DefaultStateMachineContext<States, Events>
-                                    (restoreState(states[i]), null, null, null))
-                            .collect(toList());
-
-            return new DefaultStateMachineContext<>(childrenStates, mainState, null, null, null, null, machineId);
+            final var status = result.get();
+            final var context = restoredContext(status);
+            logger.debug("Restore context for StateMachine '{}' with state {}", machineId, context);
+
+            final var extendedState = new DefaultExtendedState(Map.of(VERSION, status.getVersion()));
+            return new RestoredStateMachineContext<>(context, machineId, extendedState);
         }
 
-        logger.info("Previous state not found for StateMachine '{}', create new", machineId);
+        logger.debug("Previous state not found for StateMachine '{}', create new", machineId);
         return null;
     }
 
+    // Контекст без регионов общий, с регионами на чтение создается только корневой контекст со списком общих
+    // контекстов регионов, линейно по числу регионов
+    @NotNull
+    private StateMachineContext<States, Events> restoredContext(@NotNull CalculationStatusRecord status) {
+        final var states = states(status);
+        if (states.size() == 1) {
+            return sharedContext(states.get(0));
+        }
+        final List<StateMachineContext<States, Events>> childrenStates = new ArrayList<>(states.size() - 1);
+        for (var state : states.subList(1, states.size())) {
+            childrenStates.add(sharedContext(state));
+        }
+        return new DefaultStateMachineContext<States, Events>(childrenStates, states.get(0), null, null, null);
+    }
+
+    @NotNull
+    private StateMachineContext<States, Events> sharedContext(@NotNull States state) {
+        final var context = contexts.get(state);
+        return context != null
+                ? context
+                : contexts.computeIfAbsent(state, id -> new DefaultStateMachineContext<>(id, null, null, null));
+    }
+
+    // Главное состояние и состояния регионов из записи истории
+    @NotNull
+    public List<States> states(@NotNull CalculationStatusRecord status) {
+        if (status.getStateCode() != null) {
+            return stateCodec.decode(status.getStateCode());
+        }
+        // Записи, сделанные до появления state_code, хранят имена состояний через ';'
+        return Arrays
+                .stream(requireNonNull(status.getStatus()).split(DELIMITER))
+                .map(this::restoreState)
+                .collect(toList());
+    }
+
+    // Версия последней записанной в БД строки истории, без восстановления состояния
+    public long readVersion(@NotNull String machineId) {
+        return calculationStatusService.getCalculationLastVersion(fromString(machineId));
+    }
+
+    // Версия, до которой State Machine в памяти синхронизирована с БД, null – неизвестна
+    @Nullable
+    public static Long version(@NotNull StateMachine<?, ?> stateMachine) {
+        return stateMachine.getExtendedState().get(VERSION, Long.class);
+    }
+
+    public static void setVersion(@NotNull StateMachine<?, ?> stateMachine, long version) {
+        stateMachine.getExtendedState().getVariables().put(VERSION, version);
+    }
+
     @Override
     public void preStateChange(
             State<States, Events> state,
@@ -113,48 +287,51 @@ public abstract class BaseCustomStateMachinePersist<States extends Enum<States>
 
         // Если меняется главное состояние State Machine, то записываем только его,
         // если меняются вложенные, то сохраняем все состояния
-        if (state.getId().type() != MAIN) {
-            final var states = rootStateMachine
-                    .getState()
-                    .getIds()
-                    .stream()
-                    .collect(toMap(StateDescriptor::type, identity()));
-
-            states.put(state.getId().type(), state.getId());
+        if (state.getId().region() != MAIN) {
+            // Состояния по номеру региона, запись линейна по числу регионов
+            final var states = new ArrayList<States>(nCopies(regions() + 1, null));
+            for (var id : rootStateMachine.getState().getIds()) {
+                states.set(id.region(), id);
+            }
+            states.set(state.getId().region(), state.getId());
 
-            final List<StateMachineContext<States, Events>> childrenStates = secondaryMachineTypes()
-                    .stream()
-                    .filter(states::containsKey)
-                    .map(type -> new DefaultStateMachineContext<>(states.get(type), payload, null, null))
-                    .collect(toList());
+            final List<StateMachineContext<States, Events>> childrenStates = new ArrayList<>(regions());
+            for (var child : states.subList(1, states.size())) {
+                if (child != null) {
+                    childrenStates.add(new DefaultStateMachineContext<>(child, payload, null, null));
+                }
+            }
 
             return new DefaultStateMachineContext<>(childrenStates,
                                                     states.get(MAIN),
                                                     payload,
                                                     headers,
-                                                    stateMachine.getExtendedState());
+                                                    rootStateMachine.getExtendedState());
         }
 
+        // Версия хранится в extended state корневой State Machine, у регионов он свой
         return new DefaultStateMachineContext<>(state.getId(), payload, headers,
-                                                stateMachine.getExtendedState());
+                                                rootStateMachine.getExtendedState());
 
 
     }
 
+    // Состояние по имени, нужно только для записей истории в старом строковом формате
     protected abstract States restoreState(@NotNull String state);
 
-    protected List<StateMachineType> secondaryMachineTypes() {
-        return of();
+    // Число регионов: состояния регионов пишутся в порядке номеров регионов с 1
+    protected int regions() {
+        return 0;
     }
 
     @NotNull
-    private String buildStatus(@NotNull StateMachineContext<States, Events> context) {
-        var statuses = new ArrayList<String>();
-        statuses.add(context.getState().name());
+    private List<States> states(@NotNull StateMachineContext<States, Events> context) {
+        var states = new ArrayList<States>();
+        states.add(context.getState());
         if (!isEmpty(context.getChilds())) {
-            context.getChilds().forEach(c -> statuses.add(c.getState().name()));
+            context.getChilds().forEach(c -> states.add(c.getState()));
         }
-        return join(DELIMITER, statuses);
+        return states;
     }
 
 }
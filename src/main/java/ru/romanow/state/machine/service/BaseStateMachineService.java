@@ -1,133 +1,347 @@
 package ru.romanow.state.machine.service;
 
-import java.util.Map;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.Lifecycle;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.statemachine.StateMachine;
 import org.springframework.statemachine.StateMachineContext;
+import org.springframework.statemachine.StateMachineEventResult.ResultType;
+import org.springframework.statemachine.access.StateMachineAccess;
 import org.springframework.statemachine.config.StateMachineFactory;
 import org.springframework.statemachine.listener.StateMachineListenerAdapter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.config.StateMachineProperties.RestorePolicy;
+import ru.romanow.state.machine.domain.enums.CalculationType;
+import ru.romanow.state.machine.models.EventDescriptor;
+import ru.romanow.state.machine.models.SendEventsResult;
 import ru.romanow.state.machine.models.StateDescriptor;
+import ru.romanow.state.machine.service.StateMachineMetrics.Meters;
 
-@RequiredArgsConstructor
-public abstract class BaseStateMachineService<States extends Enum<States> & StateDescriptor, Events extends Enum<Events>>
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static ru.romanow.state.machine.service.StateMachineMetrics.timed;
+
+/**
+ * State Machine расчетов хранятся в ограниченном {@link StateMachineRegistry}, State Machine в конечном состоянии
+ * удаляется из него сразу. Фабрика создает State Machine без запуска: новая State Machine сначала восстанавливается
+ * из БД и запускается один раз, уже в восстановленном состоянии, без входа в начальное состояние и fork регионов.
+ * <p>
+ * State Machine из реестра восстанавливается заново, только если ее версия (номер последней записи истории) отстает
+ * от БД, политика – {@link RestorePolicy}: {@code version} сверяет только версию, {@code always} восстанавливает
+ * всегда, {@code owned} обращается к БД только для новой State Machine. Блокирующие acquire / release – обертки над
+ * реактивными, которые собирают запуск, восстановление и чтение из БД в один Mono без {@code block()}.
+ */
+public abstract class BaseStateMachineService<States extends StateDescriptor, Events extends EventDescriptor>
         implements StateMachineService<States, Events>,
                    DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(BaseStateMachineService.class);
 
     private final BaseCustomStateMachinePersist<States, Events> stateMachinePersist;
-    private final Map<String, StateMachine<States, Events>> machines = new ConcurrentHashMap<>();
+    private final StateMachineRegistry<States, Events> machines;
+    private final StripedLock locks;
     private final StateMachineFactory<States, Events> stateMachineFactory;
+    private final RestorePolicy restorePolicy;
+    private final CompletionListener<States, Events> completionListener;
+    private final Meters meters;
+
+    protected BaseStateMachineService(
+            @NotNull BaseCustomStateMachinePersist<States, Events> stateMachinePersist,
+            @NotNull StateMachineFactory<States, Events> stateMachineFactory,
+            @NotNull StateMachineProperties properties,
+            @NotNull StateMachineMetrics metrics
+    ) {
+        // type() – константа наследника, от его полей не зависит
+        this.meters = metrics.of(type());
+        this.stateMachinePersist = stateMachinePersist;
+        this.stateMachineFactory = stateMachineFactory;
+        this.locks = new StripedLock(properties.getLockStripes(), meters.getLockWait());
+        this.restorePolicy = properties.getRestorePolicy();
+        this.machines = new StateMachineRegistry<>(properties.getRegistry(), this::evictStateMachine);
+        this.completionListener = new CompletionListener<>(machines);
+        metrics.bind(this);
+    }
+
+    @NotNull
+    public abstract CalculationType type();
 
     @Override
     public final void destroy() {
-        for (var machineId : machines.keySet()) {
-            releaseStateMachine(machineId);
-        }
+        Flux.fromIterable(machines.machineIds())
+            .flatMap(this::releaseStateMachineReactive)
+            .blockLast();
     }
 
     @NotNull
     @Override
-    @SneakyThrows
-    public synchronized StateMachine<States, Events> acquireStateMachine(@NotNull String machineId) {
-        logger.info("Acquiring StateMachine with ID '{}'", machineId);
+    public StateMachine<States, Events> acquireStateMachine(@NotNull String machineId) {
+        return requireNonNull(acquireStateMachineReactive(machineId).block());
+    }
 
-        var stateMachine = machines.get(machineId);
-        if (Objects.isNull(stateMachine)) {
-            stateMachine = stateMachineFactory.getStateMachine(machineId);
-            machines.put(machineId, stateMachine);
-        }
+    @Override
+    public void releaseStateMachine(@NotNull String machineId) {
+        releaseStateMachineReactive(machineId).block();
+    }
+
+    @NotNull
+    @Override
+    public SendEventsResult sendEvents(@NotNull String machineId, @NotNull List<Events> events) {
+        return requireNonNull(sendEventsReactive(machineId, events).block());
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Void> persisted(@NotNull String machineId) {
+        return stateMachinePersist.persisted(machineId);
+    }
 
-        var stateMachineContext = stateMachinePersist.read(machineId);
-        stateMachine = restoreStateMachine(stateMachine, stateMachineContext);
+    @NotNull
+    @Override
+    public Mono<StateMachine<States, Events>> acquireStateMachineReactive(@NotNull String machineId) {
+        // Блокировка только по machineId: разные расчеты восстанавливаются параллельно,
+        // а один и тот же расчет – строго последовательно
+        return locks.withLock(machineId, () -> acquire(machineId));
+    }
 
-        return handleStart(stateMachine);
+    @NotNull
+    @Override
+    public Mono<SendEventsResult> sendEventsReactive(@NotNull String machineId, @NotNull List<Events> events) {
+        // Один acquire на всю пачку, события применяются по порядку до первого непринятого,
+        // история переходов пишется в БД одной транзакцией после применения
+        return locks.withLock(machineId, () -> acquire(machineId).flatMap(stateMachine -> {
+            final var accepted = new ArrayList<String>();
+            stateMachinePersist.beginBatch(machineId);
+            return Flux.fromIterable(events)
+                       .concatMap(event -> sendEvent(stateMachine, event)
+                               .doOnNext(result -> {
+                                   if (result) {
+                                       accepted.add(event.name());
+                                   }
+                               })
+                               .filter(result -> !result)
+                               .map(result -> event.name()))
+                       .next()
+                       .map(Optional::of)
+                       .defaultIfEmpty(Optional.empty())
+                       .map(rejected -> new SendEventsResult(accepted, rejected.orElse(null), states(stateMachine)))
+                       .doOnNext(result -> stateMachinePersist.flushBatch(machineId, stateMachine))
+                       .doOnError(exception -> stateMachinePersist.discardBatch(machineId, stateMachine))
+                       .doOnCancel(() -> stateMachinePersist.discardBatch(machineId, stateMachine));
+        }));
     }
 
+    @NotNull
     @Override
-    public synchronized void releaseStateMachine(@NotNull String machineId) {
-        var stateMachine = machines.remove(machineId);
-        if (stateMachine != null) {
+    public Mono<Void> releaseStateMachineReactive(@NotNull String machineId) {
+        return locks.withLock(machineId, () -> {
+            var stateMachine = machines.remove(machineId);
+            if (stateMachine == null) {
+                return Mono.empty();
+            }
             logger.info("Releasing StateMachine with id '{}'", machineId);
-            handleStop(stateMachine);
+            return handleStop(stateMachine);
+        });
+    }
+
+    @NotNull
+    private Mono<StateMachine<States, Events>> acquire(@NotNull String machineId) {
+        logger.debug("Acquiring StateMachine with ID '{}'", machineId);
+        final long start = System.nanoTime();
+
+        final var cached = machines.get(machineId);
+        final Mono<StateMachine<States, Events>> restored;
+        if (Objects.isNull(cached)) {
+            final var stateMachine = stateMachineFactory.getStateMachine(machineId);
+            stateMachine.addStateListener(completionListener);
+            machines.put(machineId, stateMachine);
+            meters.getLookup().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            restored = restoreFromPersist(machineId, stateMachine, false);
+        } else {
+            meters.getLookup().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            restored = isCurrent(machineId, cached)
+                    .flatMap(current -> current ? Mono.just(cached) : restoreFromPersist(machineId, cached, true));
+        }
+
+        return restored
+                .flatMap(this::handleStart)
+                .doOnNext(stateMachine -> {
+                    // Завершенный расчет (CALCULATION_FINISHED / CALCULATION_ERROR) больше не принимает события,
+                    // держать его в памяти незачем
+                    if (stateMachine.isComplete()) {
+                        machines.remove(machineId, stateMachine);
+                    }
+                })
+                .doFinally(signal -> meters.getAcquire().record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    // Событие принято, если его принял хотя бы один регион
+    @NotNull
+    private Mono<Boolean> sendEvent(@NotNull StateMachine<States, Events> stateMachine, @NotNull Events event) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return stateMachine
+                    .sendEvent(Mono.just(MessageBuilder.withPayload(event).build()))
+                    .any(result -> result.getResultType() == ResultType.ACCEPTED)
+                    .doOnNext(accepted -> meters.getEvent(accepted)
+                                                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    @NotNull
+    private List<String> states(@NotNull StateMachine<States, Events> stateMachine) {
+        return stateMachine
+                .getState()
+                .getIds()
+                .stream()
+                .map(StateDescriptor::name)
+                .collect(toList());
+    }
+
+    public long registrySize() {
+        return machines.size();
+    }
+
+    public long runningCount() {
+        return machines.running();
+    }
+
+    @NotNull
+    public CacheStats registryStats() {
+        return machines.stats();
+    }
+
+    // State Machine из реестра актуальна, если ее версия совпадает с последней записанной в БД
+    @NotNull
+    private Mono<Boolean> isCurrent(@NotNull String machineId, @NotNull StateMachine<States, Events> stateMachine) {
+        final var version = BaseCustomStateMachinePersist.version(stateMachine);
+        if (version == null || restorePolicy == RestorePolicy.ALWAYS) {
+            return Mono.just(false);
+        }
+        if (restorePolicy == RestorePolicy.OWNED) {
+            return Mono.just(true);
         }
+        // В режиме write-behind версия в памяти может опережать БД на еще не записанные переходы,
+        // восстанавливать нужно только если расчет продвинул другой узел.
+        // Чтение выполняется под блокировкой расчета: без конкуренции – в потоке подписчика, иначе – в boundedElastic
+        // после освобождения блокировки, т.е. не в транзакции вызывающего кода, а в своей read-only транзакции
+        // CalculationStatusService
+        return timed(meters.getVersionRead(), () -> stateMachinePersist.readVersion(machineId))
+                .map(persisted -> persisted <= version);
+    }
+
+    @NotNull
+    private Mono<StateMachine<States, Events>> restoreFromPersist(
+            @NotNull String machineId,
+            @NotNull StateMachine<States, Events> stateMachine,
+            boolean cached
+    ) {
+        return timed(meters.getStateRead(), () -> stateMachinePersist.read(machineId))
+                .flatMap(stateMachineContext -> timed(meters.getRestore(),
+                                                      restoreStateMachine(stateMachine, stateMachineContext)))
+                .switchIfEmpty(Mono.defer(() -> {
+                    // Истории в БД нет: State Machine из реестра могла уйти вперед без записи (ошибка при сохранении),
+                    // поэтому возвращаем ее в начальное состояние
+                    final Mono<Void> reset = cached ? resetRegions(stateMachine, null) : Mono.empty();
+                    return reset.then(Mono.fromSupplier(() -> {
+                        BaseCustomStateMachinePersist.setVersion(stateMachine, 0L);
+                        return stateMachine;
+                    }));
+                }));
     }
 
     @NotNull
-    protected StateMachine<States, Events> restoreStateMachine(
+    protected Mono<StateMachine<States, Events>> restoreStateMachine(
             @NotNull StateMachine<States, Events> stateMachine,
             @Nullable StateMachineContext<States, Events> stateMachineContext) {
         if (stateMachineContext == null) {
-            return stateMachine;
+            return Mono.just(stateMachine);
         }
-        stateMachine.stopReactively().block();
-        stateMachine.getStateMachineAccessor()
-                    .doWithAllRegions(f -> f.resetStateMachineReactively(stateMachineContext).block());
-        return stateMachine;
+        return resetRegions(stateMachine, stateMachineContext).thenReturn(stateMachine);
     }
 
+    // Mono запуска и остановки завершается после уведомления listener'ов, ждать stateMachineStarted не нужно
     @NotNull
-    @SneakyThrows
-    protected StateMachine<States, Events> handleStart(@NotNull StateMachine<States, Events> stateMachine) {
-        if (!((Lifecycle) stateMachine).isRunning()) {
-            var listener = new StartListener<>(stateMachine);
-            stateMachine.addStateListener(listener);
-            stateMachine.startReactively().block();
-            listener.latch.await();
+    protected Mono<StateMachine<States, Events>> handleStart(@NotNull StateMachine<States, Events> stateMachine) {
+        if (((Lifecycle) stateMachine).isRunning()) {
+            return Mono.just(stateMachine);
         }
-        return stateMachine;
+        return timed(meters.getStart(), stateMachine.startReactively().thenReturn(stateMachine));
     }
 
-    @SneakyThrows
-    protected void handleStop(@NotNull StateMachine<States, Events> stateMachine) {
-        if (((Lifecycle) stateMachine).isRunning()) {
-            var listener = new StopListener<>(stateMachine);
-            stateMachine.addStateListener(listener);
-            stateMachine.stopReactively().block();
-            listener.latch.await();
+    @NotNull
+    protected Mono<Void> handleStop(@NotNull StateMachine<States, Events> stateMachine) {
+        if (!((Lifecycle) stateMachine).isRunning()) {
+            return Mono.empty();
         }
+        return stateMachine.stopReactively();
     }
 
-    private static class StartListener<States, Events>
-            extends StateMachineListenerAdapter<States, Events> {
-
-        private final CountDownLatch latch = new CountDownLatch(1);
-        private final StateMachine<States, Events> stateMachine;
-
-        public StartListener(StateMachine<States, Events> stateMachine) {
-            this.stateMachine = stateMachine;
-        }
+    @NotNull
+    private Mono<Void> resetRegions(
+            @NotNull StateMachine<States, Events> stateMachine,
+            @Nullable StateMachineContext<States, Events> stateMachineContext
+    ) {
+        final List<StateMachineAccess<States, Events>> regions = new ArrayList<>();
+        stateMachine.getStateMachineAccessor().doWithAllRegions(regions::add);
+        // Новая State Machine еще не запущена: восстанавливается сразу, без остановки и повторного входа
+        // в начальное состояние
+        return handleStop(stateMachine)
+                .thenMany(Flux.fromIterable(regions))
+                .concatMap(region -> region.resetStateMachineReactively(stateMachineContext))
+                .then();
+    }
 
-        @Override
-        public void stateMachineStarted(StateMachine<States, Events> stateMachine) {
-            this.stateMachine.removeStateListener(this);
-            latch.countDown();
-        }
+    private void evictStateMachine(
+            @NotNull String machineId,
+            @NotNull StateMachine<States, Events> stateMachine,
+            @NotNull RemovalCause cause
+    ) {
+        // Вызывается из потока Caffeine, результат остановки никто не ждет
+        final Mono<Void> stop = locks.withLock(machineId, () -> {
+            // По размеру W-TinyLFU может вытеснить и State Machine, которую acquire только что выдал: события в нее
+            // отправляются уже после освобождения блокировки. Пока ее не заменил следующий acquire, она может быть
+            // в работе и не останавливается, без ссылок на нее ее соберет GC. По TTL вытесняется только простаивающая
+            if (cause == RemovalCause.SIZE && !machines.contains(machineId)) {
+                logger.debug("StateMachine with id '{}' evicted by size, leave it running", machineId);
+                return Mono.empty();
+            }
+            logger.info("Evicting StateMachine with id '{}'", machineId);
+            return handleStop(stateMachine);
+        });
+        stop.subscribe(null, exception -> logger.warn("Failed to stop StateMachine '{}'", machineId, exception));
     }
 
-    private static class StopListener<States, Events>
+    // Один на сервис: id и экземпляр State Machine приходят в событии, поэтому у каждой State Machine
+    // в памяти остается только ссылка на него
+    private static class CompletionListener<States, Events>
             extends StateMachineListenerAdapter<States, Events> {
 
-        private final CountDownLatch latch = new CountDownLatch(1);
-        private final StateMachine<States, Events> stateMachine;
+        private final StateMachineRegistry<States, Events> machines;
 
-        public StopListener(StateMachine<States, Events> stateMachine) {
-            this.stateMachine = stateMachine;
+        public CompletionListener(StateMachineRegistry<States, Events> machines) {
+            this.machines = machines;
         }
 
         @Override
         public void stateMachineStopped(StateMachine<States, Events> stateMachine) {
-            this.stateMachine.removeStateListener(this);
-            latch.countDown();
+            // При переходе в конечное состояние State Machine останавливается сама. Регионы тоже получают id
+            // расчета при восстановлении, но в реестре лежит только State Machine верхнего уровня
+            if (stateMachine.isComplete() && stateMachine.getId() != null) {
+                machines.remove(stateMachine.getId(), stateMachine);
+            }
         }
     }
 }
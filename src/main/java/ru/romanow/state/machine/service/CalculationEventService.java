@@ -0,0 +1,28 @@
+package ru.romanow.state.machine.service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+import ru.romanow.state.machine.domain.enums.CalculationType;
+import ru.romanow.state.machine.models.SendEventsResult;
+
+/**
+ * Отправка событий расчетам по имени. События одного расчета применяются в его почтовом ящике
+ * {@link StateMachineEventDispatcher}, результат отдается после записи переходов в БД. Неизвестное имя события –
+ * {@link UnknownEventException} в потоке вызова, до постановки задачи в почтовый ящик.
+ */
+public interface CalculationEventService {
+
+    @NotNull
+    SendEventsResult sendEvents(@NotNull CalculationType type, @NotNull UUID calculationUid,
+                                @NotNull List<String> events);
+
+    // События ставятся в почтовый ящик расчета, future завершается после записи переходов в БД
+    @NotNull
+    CompletableFuture<SendEventsResult> sendEventsAsync(@NotNull CalculationType type, @NotNull UUID calculationUid,
+                                                        @NotNull List<String> events);
+
+    // Проверка в потоке вызова: неизвестные имена событий – UnknownEventException
+    void validateEvents(@NotNull CalculationType type, @NotNull List<String> events);
+}
@@ -0,0 +1,127 @@
+package ru.romanow.state.machine.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.romanow.state.machine.domain.enums.CalculationType;
+import ru.romanow.state.machine.models.EventDescriptor;
+import ru.romanow.state.machine.models.SendEventsResult;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
+
+import static java.util.stream.Collectors.toList;
+
+@Service
+public class CalculationEventServiceImpl
+        implements CalculationEventService {
+    private final Map<CalculationType, EventSender<?>> senderMap;
+    private final StateMachineEventDispatcher eventDispatcher;
+
+    @Autowired
+    public CalculationEventServiceImpl(
+            CashFlowStateMachineService cashFlowStateMachineService,
+            VssdvStateMachineService vssdvStateMachineService,
+            StateMachineEventDispatcher eventDispatcher
+    ) {
+        this.eventDispatcher = eventDispatcher;
+        this.senderMap = Map.of(
+                CalculationType.CASH_FLOW,
+                new EventSender<>(CashFlowEvents.class, CashFlowEvents::valueOf, cashFlowStateMachineService),
+                CalculationType.VSSDV,
+                new EventSender<>(VssdvEvents.class, VssdvEvents::valueOf, vssdvStateMachineService)
+        );
+    }
+
+    @NotNull
+    @Override
+    public SendEventsResult sendEvents(@NotNull CalculationType type, @NotNull UUID calculationUid,
+                                       @NotNull List<String> events) {
+        final var sender = senderMap.get(type);
+        sender.validateEvents(events);
+        final var result = eventDispatcher.execute(calculationUid.toString(),
+                                                   () -> sender.sendEvents(calculationUid, events));
+
+        // Ответ после записи переходов в БД, в том числе в режиме group-commit, ожидание вне почтового ящика
+        sender.persisted(calculationUid).join();
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<SendEventsResult> sendEventsAsync(@NotNull CalculationType type,
+                                                               @NotNull UUID calculationUid,
+                                                               @NotNull List<String> events) {
+        final var sender = senderMap.get(type);
+        sender.validateEvents(events);
+        return eventDispatcher
+                .dispatch(calculationUid.toString(), () -> sender.sendEvents(calculationUid, events))
+                .thenCompose(result -> sender.persisted(calculationUid).thenApply(v -> result));
+    }
+
+    @Override
+    public void validateEvents(@NotNull CalculationType type, @NotNull List<String> events) {
+        senderMap.get(type).validateEvents(events);
+    }
+
+    private static final class EventSender<Events extends EventDescriptor> {
+        private final Class<Events> eventType;
+        // Событие по имени, IllegalArgumentException для неизвестного имени – как Enum.valueOf
+        private final Function<String, Events> parser;
+        private final StateMachineService<?, Events> stateMachineService;
+
+        private EventSender(
+                @NotNull Class<Events> eventType,
+                @NotNull Function<String, Events> parser,
+                @NotNull StateMachineService<?, Events> service
+        ) {
+            this.eventType = eventType;
+            this.parser = parser;
+            this.stateMachineService = service;
+        }
+
+        // Проверка в потоке запроса: неизвестные имена событий – UnknownEventException
+        void validateEvents(@NotNull List<String> events) {
+            final var unknown = new ArrayList<String>();
+            for (var event : events) {
+                if (event == null || !isEvent(event)) {
+                    unknown.add(event);
+                }
+            }
+            if (!unknown.isEmpty()) {
+                throw new UnknownEventException(eventType, unknown);
+            }
+        }
+
+        @NotNull
+        SendEventsResult sendEvents(@NotNull UUID calculationUid, @NotNull List<String> events) {
+            final var eventTypes = events
+                    .stream()
+                    .map(parser)
+                    .collect(toList());
+
+            return stateMachineService.sendEvents(calculationUid.toString(), eventTypes);
+        }
+
+        @NotNull
+        CompletableFuture<Void> persisted(@NotNull UUID calculationUid) {
+            return stateMachineService.persisted(calculationUid.toString());
+        }
+
+        private boolean isEvent(@NotNull String event) {
+            try {
+                parser.apply(event);
+                return true;
+            } catch (IllegalArgumentException exception) {
+                return false;
+            }
+        }
+    }
+}
@@ -7,4 +7,17 @@ import ru.romanow.state.machine.domain.Calculation;
 public interface CalculationService {
     @NotNull
     Calculation findByUid(@NotNull UUID calculationUid);
+
+    /**
+     * Id расчета по uid, без загрузки сущности. Результат (в том числе отсутствие расчета) кэшируется.
+     *
+     * @throws javax.persistence.EntityNotFoundException если расчета нет
+     */
+    long findIdByUid(@NotNull UUID calculationUid);
+
+    /**
+     * Ссылка на расчет для связей (proxy без select), существование проверяет foreign key при insert.
+     */
+    @NotNull
+    Calculation getReference(long calculationId);
 }
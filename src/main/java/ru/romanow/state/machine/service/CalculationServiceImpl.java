@@ -1,26 +1,86 @@
 package ru.romanow.state.machine.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import java.util.UUID;
 import javax.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.romanow.state.machine.config.StateMachineProperties;
 import ru.romanow.state.machine.domain.Calculation;
 import ru.romanow.state.machine.repostitory.CalculationRepository;
 
+/**
+ * Id расчета по uid для записи истории: {@code calculation} не загружается, в {@code calculation_status} ставится
+ * ссылка на id, существование расчета проверяет foreign key. Отсутствующие uid кэшируются только
+ * на {@code negative-ttl}, чтобы расчет, созданный позже, не отклонялся.
+ */
 @Service
-@RequiredArgsConstructor
 public class CalculationServiceImpl
         implements CalculationService {
     private final CalculationRepository calculationRepository;
 
+    // uid и id расчета не меняются, поэтому соответствие кэшируется без TTL
+    private final Cache<UUID, Long> ids;
+    private final Cache<UUID, Boolean> missing;
+
+    @Autowired
+    public CalculationServiceImpl(
+            CalculationRepository calculationRepository,
+            StateMachineProperties properties
+    ) {
+        final var cache = properties.getCalculationCache();
+        this.calculationRepository = calculationRepository;
+        this.ids = Caffeine
+                .newBuilder()
+                .maximumSize(cache.getMaxSize())
+                .build();
+        this.missing = Caffeine
+                .newBuilder()
+                .maximumSize(cache.getMaxSize())
+                .expireAfterWrite(cache.getNegativeTtl())
+                .build();
+    }
+
     @NotNull
     @Override
     @Transactional(readOnly = true)
     public Calculation findByUid(@NotNull UUID calculationUid) {
         return calculationRepository
                 .findByUid(calculationUid)
-                .orElseThrow(() -> new EntityNotFoundException("Calculation not found by '" + calculationUid + "'"));
+                .orElseThrow(() -> notFound(calculationUid));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long findIdByUid(@NotNull UUID calculationUid) {
+        final var id = ids.getIfPresent(calculationUid);
+        if (id != null) {
+            return id;
+        }
+        if (missing.getIfPresent(calculationUid) != null) {
+            throw notFound(calculationUid);
+        }
+
+        final var found = calculationRepository.findIdByUid(calculationUid);
+        if (found.isEmpty()) {
+            missing.put(calculationUid, Boolean.TRUE);
+            throw notFound(calculationUid);
+        }
+        ids.put(calculationUid, found.get());
+        return found.get();
+    }
+
+    @NotNull
+    @Override
+    public Calculation getReference(long calculationId) {
+        return calculationRepository.getReferenceById(calculationId);
+    }
+
+    @NotNull
+    private EntityNotFoundException notFound(@NotNull UUID calculationUid) {
+        return new EntityNotFoundException("Calculation not found by '" + calculationUid + "'");
     }
 }
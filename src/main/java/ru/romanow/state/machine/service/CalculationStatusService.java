@@ -3,11 +3,30 @@ package ru.romanow.state.machine.service;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
 
 public interface CalculationStatusService {
-    void create(@NotNull UUID calculationUid, @NotNull String status);
+    void create(@NotNull CalculationStatusRecord status);
+
+    void create(@NotNull List<CalculationStatusRecord> statuses);
+
+    // Future завершается после commit записи, по умолчанию запись синхронная. previous – предыдущая запись
+    // того же расчета: если она не прошла, запись не выполняется, иначе в истории будет пропуск версии
+    @NotNull
+    default CompletableFuture<Void> createAsync(@NotNull CalculationStatusRecord status,
+                                                @Nullable CompletableFuture<Void> previous) {
+        if (previous != null && previous.isCompletedExceptionally()) {
+            return previous.copy();
+        }
+        create(status);
+        return CompletableFuture.completedFuture(null);
+    }
 
     @NotNull
-    Optional<String> getCalculationLastState(@NotNull UUID calculationUid);
+    Optional<CalculationStatusRecord> getCalculationLastState(@NotNull UUID calculationUid);
+
+    long getCalculationLastVersion(@NotNull UUID calculationUid);
 }
@@ -1,14 +1,23 @@
 package ru.romanow.state.machine.service;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.romanow.state.machine.domain.CalculationCurrentState;
 import ru.romanow.state.machine.domain.CalculationStatus;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
+import ru.romanow.state.machine.repostitory.CalculationCurrentStateRepository;
 import ru.romanow.state.machine.repostitory.CalculationStatusRepository;
 
+import static java.util.stream.Collectors.toList;
 import static org.springframework.data.domain.Pageable.ofSize;
 
 @Service
@@ -17,25 +26,82 @@ public class CalculationStatusServiceImpl
         implements CalculationStatusService {
     private final CalculationService calculationService;
     private final CalculationStatusRepository calculationStatusRepository;
+    private final CalculationCurrentStateRepository calculationCurrentStateRepository;
 
     @Override
     @Transactional
-    public void create(@NotNull UUID calculationUid, @NotNull String status) {
-        var calculation = calculationService.findByUid(calculationUid);
-        var calculationStatus = new CalculationStatus()
-                .setStatus(status)
-                .setCalculation(calculation);
+    public void create(@NotNull CalculationStatusRecord status) {
+        // Id расчета берется из кэша, вместо сущности – ссылка: переход пишется без select по calculation
+        final long calculationId = calculationService.findIdByUid(status.getCalculationUid());
+        final var calculationStatus = new CalculationStatus()
+                .setStatus(status.getStatus())
+                .setStateCode(status.getStateCode())
+                .setVersion(status.getVersion())
+                .setCalculation(calculationService.getReference(calculationId));
 
         calculationStatusRepository.save(calculationStatus);
+        calculationCurrentStateRepository.upsert(
+                status.getCalculationUid(), calculationId, status.getStatus(), status.getStateCode(),
+                status.getVersion());
     }
 
+    // Default-метод интерфейса вызвал бы create() мимо transactional proxy, а upsert требует транзакции
     @NotNull
     @Override
-    @Transactional(readOnly = true)
-    public Optional<String> getCalculationLastState(@NotNull UUID calculationUid) {
-        return calculationStatusRepository
-                .getCalculationLastState(calculationUid, ofSize(1))
+    @Transactional
+    public CompletableFuture<Void> createAsync(@NotNull CalculationStatusRecord status,
+                                               @Nullable CompletableFuture<Void> previous) {
+        return CalculationStatusService.super.createAsync(status, previous);
+    }
+
+    @Override
+    @Transactional
+    public void create(@NotNull List<CalculationStatusRecord> statuses) {
+        final var calculationIds = new HashMap<UUID, Long>();
+        final var calculationStatuses = statuses
                 .stream()
-                .findFirst();
+                .map(status -> new CalculationStatus()
+                        .setStatus(status.getStatus())
+                        .setStateCode(status.getStateCode())
+                        .setVersion(status.getVersion())
+                        .setCalculation(calculationService.getReference(
+                                calculationIds.computeIfAbsent(status.getCalculationUid(),
+                                                               calculationService::findIdByUid))))
+                .collect(toList());
+
+        calculationStatusRepository.saveAll(calculationStatuses);
+
+        // Текущее состояние – последняя запись пачки по каждому расчету
+        final var lastStatuses = new LinkedHashMap<UUID, CalculationStatusRecord>();
+        statuses.forEach(status -> lastStatuses.merge(status.getCalculationUid(), status,
+                                                      (a, b) -> a.getVersion() > b.getVersion() ? a : b));
+        lastStatuses.values().forEach(status -> calculationCurrentStateRepository.upsert(
+                status.getCalculationUid(), calculationIds.get(status.getCalculationUid()),
+                status.getStatus(), status.getStateCode(), status.getVersion()));
+    }
+
+    @NotNull
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<CalculationStatusRecord> getCalculationLastState(@NotNull UUID calculationUid) {
+        // Расчеты, начатые до появления calculation_current_state, есть только в истории
+        return calculationCurrentStateRepository
+                .findById(calculationUid)
+                .map(state -> new CalculationStatusRecord(
+                        calculationUid, state.getStatus(), state.getStateCode(), state.getVersion()))
+                .or(() -> calculationStatusRepository
+                        .getCalculationLastStatus(calculationUid, ofSize(1))
+                        .stream()
+                        .findFirst());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getCalculationLastVersion(@NotNull UUID calculationUid) {
+        return calculationCurrentStateRepository
+                .findById(calculationUid)
+                .map(CalculationCurrentState::getVersion)
+                .or(() -> calculationStatusRepository.getCalculationLastVersion(calculationUid))
+                .orElse(0L);
     }
 }
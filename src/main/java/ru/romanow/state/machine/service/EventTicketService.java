@@ -0,0 +1,98 @@
+package ru.romanow.state.machine.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.models.EventTicket;
+import ru.romanow.state.machine.models.SendEventsResult;
+
+/**
+ * Квитанции асинхронной отправки событий: клиент получает квитанцию сразу после постановки событий в почтовый
+ * ящик расчета и потом опрашивает результат или ждет его (long polling), не занимая поток сервлета на время
+ * восстановления State Machine, перехода и записи в БД.
+ * <p>
+ * Квитанции хранятся в памяти узла, принявшего события, и удаляются через {@code ttl} после создания или
+ * при превышении {@code max-size}, в том числе еще не завершенные.
+ */
+@Service
+public class EventTicketService {
+    private final Cache<UUID, Submission> tickets;
+    private final Duration maxWait;
+
+    @Autowired
+    public EventTicketService(StateMachineProperties properties) {
+        final var tickets = properties.getTickets();
+        this.maxWait = tickets.getMaxWait();
+        this.tickets = Caffeine
+                .newBuilder()
+                .maximumSize(tickets.getMaxSize())
+                .expireAfterWrite(tickets.getTtl())
+                .build();
+    }
+
+    @NotNull
+    public EventTicket submit(@NotNull UUID calculationUid, @NotNull CompletableFuture<SendEventsResult> future) {
+        final var ticket = UUID.randomUUID();
+        final var submission = new Submission(ticket, calculationUid, future);
+        tickets.put(ticket, submission);
+        return submission.snapshot();
+    }
+
+    // Текущее состояние квитанции, если она не завершена – ждет завершения не дольше wait (и max-wait),
+    // null – квитанция не найдена или уже удалена
+    @Nullable
+    public CompletableFuture<EventTicket> await(@NotNull UUID ticket, @NotNull Duration wait) {
+        final var submission = tickets.getIfPresent(ticket);
+        if (submission == null) {
+            return null;
+        }
+        final var timeout = wait.compareTo(maxWait) > 0 ? maxWait : wait;
+        if (submission.future.isDone() || timeout.isZero() || timeout.isNegative()) {
+            return CompletableFuture.completedFuture(submission.snapshot());
+        }
+        return submission.future
+                .handle((result, exception) -> submission.snapshot())
+                .completeOnTimeout(submission.pending(), timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Submission {
+        private final UUID ticket;
+        private final UUID calculationUid;
+        private final CompletableFuture<SendEventsResult> future;
+
+        private Submission(
+                @NotNull UUID ticket,
+                @NotNull UUID calculationUid,
+                @NotNull CompletableFuture<SendEventsResult> future
+        ) {
+            this.ticket = ticket;
+            this.calculationUid = calculationUid;
+            this.future = future;
+        }
+
+        @NotNull
+        EventTicket snapshot() {
+            if (!future.isDone()) {
+                return pending();
+            }
+            try {
+                return EventTicket.completed(ticket, calculationUid, future.join());
+            } catch (RuntimeException exception) {
+                return EventTicket.failed(ticket, calculationUid, ReactiveTransitionService.message(exception));
+            }
+        }
+
+        @NotNull
+        EventTicket pending() {
+            return EventTicket.pending(ticket, calculationUid);
+        }
+    }
+}
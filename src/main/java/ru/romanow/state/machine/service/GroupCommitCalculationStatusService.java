@@ -0,0 +1,236 @@
+package ru.romanow.state.machine.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
+
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Write-behind запись истории: {@link #createAsync} ставит запись в очередь, фоновый поток забирает
+ * до {@code batchSize} записей (первая ждет не дольше {@code maxDelay}) и пишет их одной транзакцией.
+ * Одна транзакция – один commit (fsync) в Postgres на всю пачку вместо одного на переход.
+ * <p>
+ * Записи пишутся строго в порядке постановки в очередь, поэтому завершение future последней записи
+ * расчета означает, что все его предыдущие записи тоже обработаны.
+ * <p>
+ * Ошибка пачки не роняет чужие расчеты: пачка повторяется по одной записи, каждая в своей транзакции. Запись,
+ * предыдущая запись расчета которой не прошла, не пишется и завершается с той же ошибкой – в истории не будет
+ * пропуска версии, а {@code calculation_current_state} не уйдет дальше потерянной записи.
+ * <p>
+ * При остановке очередь закрывается под write lock: запись, поставленная до закрытия, будет записана фоновым потоком
+ * или {@link #destroy}, после закрытия – пишется напрямую, но только после записи всей очереди.
+ */
+@Primary
+@Service
+@ConditionalOnProperty(prefix = "state-machine.persistence", name = "mode", havingValue = "group-commit")
+public class GroupCommitCalculationStatusService
+        implements CalculationStatusService,
+                   DisposableBean {
+    private static final Logger logger = getLogger(GroupCommitCalculationStatusService.class);
+
+    private final CalculationStatusService delegate;
+    private final BlockingQueue<PendingStatus> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    // Завершается, когда записана вся очередь и она закрыта
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+
+    // Меняется только под write lock closeLock
+    private volatile boolean running = true;
+
+    @Autowired
+    public GroupCommitCalculationStatusService(
+            CalculationStatusServiceImpl delegate,
+            StateMachineProperties properties
+    ) {
+        final var persistence = properties.getPersistence();
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(persistence.getQueueCapacity());
+        this.batchSize = persistence.getBatchSize();
+        this.maxDelayNanos = persistence.getMaxDelay().toNanos();
+        this.writer = new Thread(this::run, "calculation-status-writer");
+        this.writer.start();
+    }
+
+    @Override
+    public void create(@NotNull CalculationStatusRecord status) {
+        delegate.create(status);
+    }
+
+    @Override
+    public void create(@NotNull List<CalculationStatusRecord> statuses) {
+        delegate.create(statuses);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Void> createAsync(@NotNull CalculationStatusRecord status,
+                                               @Nullable CompletableFuture<Void> previous) {
+        final var pending = new PendingStatus(status, previous);
+        closeLock.readLock().lock();
+        try {
+            if (running) {
+                queue.put(pending);
+                return pending.written;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            pending.written.completeExceptionally(exception);
+            return pending.written;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        // Очередь закрыта: прямая запись не должна обогнать записи, которые в ней еще остались
+        drained.join();
+        return CalculationStatusService.super.createAsync(status, previous);
+    }
+
+    @NotNull
+    @Override
+    public Optional<CalculationStatusRecord> getCalculationLastState(@NotNull UUID calculationUid) {
+        return delegate.getCalculationLastState(calculationUid);
+    }
+
+    @Override
+    public long getCalculationLastVersion(@NotNull UUID calculationUid) {
+        return delegate.getCalculationLastVersion(calculationUid);
+    }
+
+    @Override
+    public void destroy()
+            throws InterruptedException {
+        // Ожидает producer'ов, уже проверивших running: их записи попадут в очередь до закрытия
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+            if (writer.isAlive()) {
+                // Прерванный поток дописывает уже собранную пачку
+                writer.interrupt();
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } finally {
+            // Записи, которые фоновый поток не успел забрать
+            final var leftover = new ArrayList<PendingStatus>();
+            queue.drainTo(leftover);
+            if (!leftover.isEmpty()) {
+                commit(leftover);
+            }
+            drained.complete(null);
+        }
+    }
+
+    private void run() {
+        final var batch = new ArrayList<PendingStatus>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                final var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                final long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    final var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                commit(batch);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(@NotNull List<PendingStatus> batch) {
+        // Предыдущая запись из этой же пачки еще не записана, ее проверит повтор по одной записи
+        final var statuses = batch
+                .stream()
+                .filter(pending -> !pending.previousFailed())
+                .collect(toList());
+        if (statuses.isEmpty()) {
+            return;
+        }
+        try {
+            delegate.create(statuses.stream().map(pending -> pending.status).collect(toList()));
+            statuses.forEach(pending -> pending.written.complete(null));
+        } catch (RuntimeException exception) {
+            logger.warn("Failed to write {} calculation statuses, retry one by one", statuses.size(), exception);
+            statuses.forEach(this::commit);
+        }
+    }
+
+    // Записи идут в порядке очереди, поэтому предыдущая запись расчета к этому моменту уже обработана
+    private void commit(@NotNull PendingStatus pending) {
+        if (pending.previousFailed()) {
+            return;
+        }
+        try {
+            delegate.create(pending.status);
+            pending.written.complete(null);
+        } catch (RuntimeException exception) {
+            logger.error("Failed to write status of calculation '{}' with version {}",
+                         pending.status.getCalculationUid(), pending.status.getVersion(), exception);
+            pending.written.completeExceptionally(exception);
+        }
+    }
+
+    private static class PendingStatus {
+        private final CalculationStatusRecord status;
+        @Nullable
+        private final CompletableFuture<Void> previous;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        PendingStatus(CalculationStatusRecord status, @Nullable CompletableFuture<Void> previous) {
+            this.status = status;
+            this.previous = previous;
+        }
+
+        // Предыдущая запись расчета не прошла: эта завершается с той же ошибкой, не записываясь
+        boolean previousFailed() {
+            if (previous == null || !previous.isCompletedExceptionally()) {
+                return false;
+            }
+            previous.whenComplete((result, exception) -> written.completeExceptionally(exception));
+            return true;
+        }
+    }
+}
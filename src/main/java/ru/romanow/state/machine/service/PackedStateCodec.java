@@ -0,0 +1,83 @@
+package ru.romanow.state.machine.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import ru.romanow.state.machine.models.StateDescriptor;
+
+import static ru.romanow.state.machine.models.StateDescriptor.MAIN;
+
+/**
+ * Состояния упаковываются по байту на регион: байт с номером {@link StateDescriptor#region()} хранит
+ * {@link StateDescriptor#code()} состояния региона, нулевой – главного состояния. Код 0 означает, что регион
+ * не активен, поэтому кодов в регионе до 255, а размер кода растет линейно с числом регионов.
+ */
+public class PackedStateCodec<States extends StateDescriptor>
+        implements StateCodec<States> {
+    private static final int MASK = 0xFF;
+
+    // Состояния по региону и коду
+    private final StateDescriptor[][] states;
+
+    public PackedStateCodec(@NotNull List<States> values) {
+        final int regions = values.stream().mapToInt(StateDescriptor::region).max().orElse(MAIN) + 1;
+        final var codes = new int[regions];
+        for (var state : values) {
+            final int code = state.code();
+            if (code <= 0 || code > MASK) {
+                throw new IllegalStateException("State code of " + state + " must be in [1, " + MASK + "]");
+            }
+            codes[state.region()] = Math.max(codes[state.region()], code);
+        }
+
+        this.states = new StateDescriptor[regions][];
+        for (int region = 0; region < regions; region++) {
+            states[region] = new StateDescriptor[codes[region] + 1];
+        }
+        for (var state : values) {
+            final var region = states[state.region()];
+            if (region[state.code()] != null) {
+                throw new IllegalStateException("States " + region[state.code()] + " and " + state
+                                                        + " have same code " + state.code());
+            }
+            region[state.code()] = state;
+        }
+    }
+
+    @NotNull
+    @Override
+    public byte[] encode(@NotNull List<States> states) {
+        int length = 1;
+        for (var state : states) {
+            length = Math.max(length, state.region() + 1);
+        }
+        final var code = new byte[length];
+        for (var state : states) {
+            code[state.region()] = (byte) state.code();
+        }
+        return code;
+    }
+
+    @NotNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<States> decode(@NotNull byte[] code) {
+        if (code.length == 0 || code.length > states.length || code[MAIN] == 0) {
+            throw new IllegalArgumentException("Wrong state code of " + code.length + " regions");
+        }
+        final var result = new ArrayList<States>(code.length);
+        for (int region = 0; region < code.length; region++) {
+            final int stateCode = code[region] & MASK;
+            if (stateCode == 0) {
+                continue;
+            }
+            final var regionStates = states[region];
+            final var state = stateCode < regionStates.length ? regionStates[stateCode] : null;
+            if (state == null) {
+                throw new IllegalArgumentException("Unknown state code " + stateCode + " in region " + region);
+            }
+            result.add((States) state);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.romanow.state.machine.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.domain.enums.CalculationType;
+import ru.romanow.state.machine.models.BulkResult;
+import ru.romanow.state.machine.models.SendEventsResult;
+
+/**
+ * Переходы в виде Mono / Flux для контроллера: и Spring MVC, и WebFlux отдают ответ по завершении задачи
+ * в почтовом ящике расчета, поток web-сервера не ждет, пока расчет ждет своей очереди, восстанавливается и пишется
+ * в БД. Восстановление и запись через JPA остаются блокирующими, но выполняются только в почтовых ящиках
+ * {@link StateMachineEventDispatcher}, количество потоков которых не зависит от количества запросов в обработке.
+ * Mono и Flux ленивые: задача ставится в почтовый ящик при подписке.
+ */
+@Service
+public class ReactiveTransitionService {
+    private final TestTransitionService transitionService;
+    private final CalculationEventService eventService;
+    private final int bulkParallelism;
+
+    @Autowired
+    public ReactiveTransitionService(
+            TestTransitionService transitionService,
+            CalculationEventService eventService,
+            StateMachineProperties properties
+    ) {
+        final int bulkParallelism = properties.getDispatcher().getBulkParallelism();
+        if (bulkParallelism <= 0) {
+            throw new IllegalArgumentException("Bulk parallelism must be positive, got " + bulkParallelism);
+        }
+        this.transitionService = transitionService;
+        this.eventService = eventService;
+        this.bulkParallelism = bulkParallelism;
+    }
+
+    @NotNull
+    public Mono<List<String>> nextState(@NotNull CalculationType type, @NotNull UUID calculationUid) {
+        return Mono.fromFuture(() -> transitionService.nextStateAsync(type, calculationUid));
+    }
+
+    @NotNull
+    public Mono<SendEventsResult> sendEvents(@NotNull CalculationType type, @NotNull UUID calculationUid,
+                                             @NotNull List<String> events) {
+        return Mono.fromFuture(() -> eventService.sendEventsAsync(type, calculationUid, events));
+    }
+
+    // Пакетные варианты: не больше bulk-parallelism расчетов одновременно, результаты в порядке готовности,
+    // следующий расчет запускается по мере отдачи результатов клиенту. Ошибка одного расчета – строка с ошибкой,
+    // остальные расчеты она не прерывает
+    @NotNull
+    public Flux<BulkResult<List<String>>> nextStates(@NotNull CalculationType type,
+                                                     @NotNull List<UUID> calculationUids) {
+        // Как и для одного расчета: результат – после записи перехода в БД
+        return bulk(calculationUids, calculationUid -> transitionService.nextStateAsync(type, calculationUid));
+    }
+
+    @NotNull
+    public Flux<BulkResult<SendEventsResult>> sendEvents(@NotNull CalculationType type,
+                                                         @NotNull Map<UUID, List<String>> events) {
+        // Неизвестное событие – ошибка всего запроса, до запуска первого расчета
+        events.values().forEach(calculationEvents -> eventService.validateEvents(type, calculationEvents));
+        return bulk(events.keySet(), calculationUid -> eventService
+                .sendEventsAsync(type, calculationUid, events.get(calculationUid)));
+    }
+
+    // Сообщение об ошибке расчета для пакетного ответа и квитанции, без обертки CompletionException
+    @NotNull
+    static String message(@NotNull Throwable exception) {
+        final var cause = exception instanceof CompletionException && exception.getCause() != null
+                ? exception.getCause()
+                : exception;
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+    }
+
+    @NotNull
+    private <T> Flux<BulkResult<T>> bulk(@NotNull Iterable<UUID> calculationUids,
+                                         @NotNull Function<UUID, CompletableFuture<T>> task) {
+        return Flux.fromIterable(calculationUids).flatMap(
+                calculationUid -> Mono.fromFuture(() -> task.apply(calculationUid))
+                                      .map(result -> BulkResult.success(calculationUid, result))
+                                      .onErrorResume(exception -> Mono.just(
+                                              BulkResult.failure(calculationUid, message(exception)))),
+                bulkParallelism);
+    }
+}
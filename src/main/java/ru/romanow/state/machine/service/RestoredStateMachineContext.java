@@ -0,0 +1,74 @@
+package ru.romanow.state.machine.service;
+
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.statemachine.ExtendedState;
+import org.springframework.statemachine.StateMachineContext;
+
+/**
+ * Контекст для восстановления конкретной State Machine поверх общего неизменяемого контекста набора состояний:
+ * свои у него только id (State Machine берет его из контекста при reset) и extended state с версией.
+ */
+final class RestoredStateMachineContext<States, Events>
+        implements StateMachineContext<States, Events> {
+    private final StateMachineContext<States, Events> shared;
+    private final String id;
+    private final ExtendedState extendedState;
+
+    RestoredStateMachineContext(
+            @NotNull StateMachineContext<States, Events> shared,
+            @NotNull String id,
+            @NotNull ExtendedState extendedState
+    ) {
+        this.shared = shared;
+        this.id = id;
+        this.extendedState = extendedState;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public List<StateMachineContext<States, Events>> getChilds() {
+        return shared.getChilds();
+    }
+
+    @Override
+    public List<String> getChildReferences() {
+        return shared.getChildReferences();
+    }
+
+    @Override
+    public States getState() {
+        return shared.getState();
+    }
+
+    @Override
+    public Events getEvent() {
+        return null;
+    }
+
+    @Override
+    public Map<States, States> getHistoryStates() {
+        return shared.getHistoryStates();
+    }
+
+    @Override
+    public Map<String, Object> getEventHeaders() {
+        return null;
+    }
+
+    @Override
+    public ExtendedState getExtendedState() {
+        return extendedState;
+    }
+
+    @Override
+    public String toString() {
+        return "RestoredStateMachineContext [id=" + id + ", state=" + shared.getState()
+                + ", childs=" + shared.getChilds() + ", extendedState=" + extendedState + "]";
+    }
+}
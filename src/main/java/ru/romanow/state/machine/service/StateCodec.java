@@ -0,0 +1,19 @@
+package ru.romanow.state.machine.service;
+
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import ru.romanow.state.machine.models.StateDescriptor;
+
+/**
+ * Представление состояния State Machine (главное состояние и состояния регионов) для хранения в БД.
+ */
+public interface StateCodec<States extends StateDescriptor> {
+
+    // Главное состояние и состояния регионов, по одному на регион
+    @NotNull
+    byte[] encode(@NotNull List<States> states);
+
+    // Первым идет главное состояние, за ним состояния регионов в порядке номеров регионов
+    @NotNull
+    List<States> decode(@NotNull byte[] code);
+}
@@ -0,0 +1,81 @@
+package ru.romanow.state.machine.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import ru.romanow.state.machine.config.StateMachineProperties;
+
+/**
+ * Почтовые ящики расчетов: задачи для одного machineId всегда выполняются одним и тем же однопоточным
+ * worker'ом строго в порядке поступления, поэтому acquire + sendEvent для одного расчета не конкурируют
+ * между собой без какой-либо блокировки. Разные расчеты распределяются по worker'ам по hash.
+ */
+@Service
+public class StateMachineEventDispatcher
+        implements DisposableBean {
+
+    private final ExecutorService[] workers;
+
+    @Autowired
+    public StateMachineEventDispatcher(StateMachineProperties properties) {
+        final var dispatcher = properties.getDispatcher();
+        if (dispatcher.getWorkers() <= 0) {
+            throw new IllegalArgumentException("Workers count must be positive, got " + dispatcher.getWorkers());
+        }
+        final var threadFactory = new CustomizableThreadFactory("state-machine-worker-");
+        this.workers = new ExecutorService[dispatcher.getWorkers()];
+        for (int i = 0; i < workers.length; i++) {
+            // Очередь ограничена: при переполнении задача отклоняется, а не копится в памяти
+            workers[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                                                new ArrayBlockingQueue<>(dispatcher.getQueueCapacity()),
+                                                threadFactory);
+        }
+    }
+
+    @NotNull
+    public <T> CompletableFuture<T> dispatch(@NotNull String machineId, @NotNull Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, worker(machineId));
+    }
+
+    // Блокирующий вариант: ждет выполнения задачи и пробрасывает ее исключение как есть
+    public <T> T execute(@NotNull String machineId, @NotNull Supplier<T> task) {
+        try {
+            return dispatch(machineId, task).join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    public int workers() {
+        return workers.length;
+    }
+
+    @Override
+    public void destroy()
+            throws InterruptedException {
+        for (var worker : workers) {
+            worker.shutdown();
+        }
+        for (var worker : workers) {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @NotNull
+    private ExecutorService worker(@NotNull String machineId) {
+        final int hash = machineId.hashCode();
+        return workers[Math.floorMod(hash ^ (hash >>> 16), workers.length)];
+    }
+}
@@ -0,0 +1,144 @@
+package ru.romanow.state.machine.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import ru.romanow.state.machine.domain.enums.CalculationType;
+
+/**
+ * Метрики State Machine по типу расчета (тег {@code type}):
+ * <ul>
+ *     <li>{@code statemachine.acquire} – захват State Machine целиком, {@code statemachine.acquire.phase} – по фазам
+ *     (тег {@code phase}): {@code lookup} – поиск в реестре и создание, {@code version} и {@code read} – чтение версии
+ *     и состояния из БД, {@code restore} – восстановление, {@code start} – запуск;</li>
+ *     <li>{@code statemachine.event} – обработка события, тег {@code result}: {@code accepted} / {@code denied};</li>
+ *     <li>{@code statemachine.persist.write} – запись перехода persister'ом;</li>
+ *     <li>{@code statemachine.lock.wait} – ожидание блокировки по machineId;</li>
+ *     <li>{@code statemachine.registry.size} и {@code statemachine.running} – State Machine в реестре и запущенные.</li>
+ * </ul>
+ * Таймеры создаются один раз на тип расчета, на пути события они только обновляются.
+ */
+@Service
+public class StateMachineMetrics {
+    private final MeterRegistry registry;
+    private final Map<CalculationType, Meters> meters = new EnumMap<>(CalculationType.class);
+
+    @Autowired
+    public StateMachineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (var type : CalculationType.values()) {
+            meters.put(type, new Meters(registry, type));
+        }
+    }
+
+    @NotNull
+    public Meters of(@NotNull CalculationType type) {
+        return meters.get(type);
+    }
+
+    // Gauge вычисляется при снятии метрик, а не на каждый переход
+    public void bind(@NotNull BaseStateMachineService<?, ?> service) {
+        Gauge.builder("statemachine.registry.size", service, BaseStateMachineService::registrySize)
+             .description("State Machines in the registry")
+             .tag("type", service.type().name())
+             .register(registry);
+        Gauge.builder("statemachine.running", service, BaseStateMachineService::runningCount)
+             .description("Running State Machines in the registry")
+             .tag("type", service.type().name())
+             .register(registry);
+    }
+
+    // Время от подписки до завершения (или отмены) Mono
+    @NotNull
+    public static <T> Mono<T> timed(@NotNull Timer timer, @NotNull Mono<T> mono) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return mono.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    // Mono.fromCallable с замером времени вызова
+    @NotNull
+    public static <T> Mono<T> timed(@NotNull Timer timer, @NotNull Callable<T> callable) {
+        return Mono.fromCallable(() -> {
+            final long start = System.nanoTime();
+            try {
+                return callable.call();
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    @Getter
+    public static final class Meters {
+        private final Timer acquire;
+        private final Timer lookup;
+        private final Timer versionRead;
+        private final Timer stateRead;
+        private final Timer restore;
+        private final Timer start;
+        @Getter(AccessLevel.NONE)
+        private final Timer accepted;
+        @Getter(AccessLevel.NONE)
+        private final Timer denied;
+        private final Timer write;
+        private final Timer lockWait;
+
+        private Meters(@NotNull MeterRegistry registry, @NotNull CalculationType type) {
+            final var tag = type.name();
+            this.acquire = Timer.builder("statemachine.acquire")
+                                .description("StateMachine acquire: lookup, persist read, restore and start")
+                                .tag("type", tag)
+                                .register(registry);
+            this.lookup = phase(registry, tag, "lookup");
+            this.versionRead = phase(registry, tag, "version");
+            this.stateRead = phase(registry, tag, "read");
+            this.restore = phase(registry, tag, "restore");
+            this.start = phase(registry, tag, "start");
+            this.accepted = event(registry, tag, "accepted");
+            this.denied = event(registry, tag, "denied");
+            this.write = Timer.builder("statemachine.persist.write")
+                              .description("StateMachine transition persist")
+                              .tag("type", tag)
+                              .register(registry);
+            this.lockWait = Timer.builder("statemachine.lock.wait")
+                                 .description("Wait for the StateMachine lock by machineId")
+                                 .tag("type", tag)
+                                 .register(registry);
+        }
+
+        @NotNull
+        public Timer getEvent(boolean accepted) {
+            return accepted ? this.accepted : denied;
+        }
+
+        @NotNull
+        private static Timer phase(@NotNull MeterRegistry registry, @NotNull String type, @NotNull String phase) {
+            return Timer.builder("statemachine.acquire.phase")
+                        .description("StateMachine acquire phase")
+                        .tag("type", type)
+                        .tag("phase", phase)
+                        .register(registry);
+        }
+
+        @NotNull
+        private static Timer event(@NotNull MeterRegistry registry, @NotNull String type, @NotNull String result) {
+            return Timer.builder("statemachine.event")
+                        .description("StateMachine event processing")
+                        .tag("type", type)
+                        .tag("result", result)
+                        .register(registry);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.romanow.state.machine.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.context.Lifecycle;
+import org.springframework.statemachine.StateMachine;
+import ru.romanow.state.machine.config.StateMachineProperties;
+
+/**
+ * Ограниченный по размеру и времени простоя реестр State Machine. Вытесненные (по размеру или TTL) машины
+ * передаются в {@code evictionHandler} вместе с причиной, явное удаление его не вызывает.
+ */
+final class StateMachineRegistry<States, Events> {
+    private final Cache<String, StateMachine<States, Events>> machines;
+
+    StateMachineRegistry(
+            @NotNull StateMachineProperties.Registry properties,
+            @NotNull EvictionHandler<States, Events> evictionHandler
+    ) {
+        this.machines = Caffeine
+                .newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .scheduler(Scheduler.systemScheduler())
+                .recordStats()
+                .<String, StateMachine<States, Events>>removalListener((machineId, stateMachine, cause) -> {
+                    if (cause.wasEvicted() && machineId != null && stateMachine != null) {
+                        evictionHandler.evicted(machineId, stateMachine, cause);
+                    }
+                })
+                .build();
+    }
+
+    @Nullable
+    StateMachine<States, Events> get(@NotNull String machineId) {
+        return machines.getIfPresent(machineId);
+    }
+
+    void put(@NotNull String machineId, @NotNull StateMachine<States, Events> stateMachine) {
+        machines.put(machineId, stateMachine);
+    }
+
+    // Без обращения к записи: не продлевает время простоя и не попадает в статистику
+    boolean contains(@NotNull String machineId) {
+        return machines.asMap().containsKey(machineId);
+    }
+
+    @Nullable
+    StateMachine<States, Events> remove(@NotNull String machineId) {
+        return machines.asMap().remove(machineId);
+    }
+
+    // Удаляет запись, только если в реестре лежит именно этот экземпляр
+    void remove(@NotNull String machineId, @NotNull StateMachine<States, Events> stateMachine) {
+        machines.asMap().remove(machineId, stateMachine);
+    }
+
+    @NotNull
+    Set<String> machineIds() {
+        return Set.copyOf(machines.asMap().keySet());
+    }
+
+    long size() {
+        return machines.estimatedSize();
+    }
+
+    // Обход всего реестра: вызывается только при снятии метрик
+    long running() {
+        return machines.asMap()
+                       .values()
+                       .stream()
+                       .filter(stateMachine -> ((Lifecycle) stateMachine).isRunning())
+                       .count();
+    }
+
+    @NotNull
+    CacheStats stats() {
+        return machines.stats();
+    }
+
+    interface EvictionHandler<States, Events> {
+        void evicted(@NotNull String machineId,
+                     @NotNull StateMachine<States, Events> stateMachine,
+                     @NotNull RemovalCause cause);
+    }
+}
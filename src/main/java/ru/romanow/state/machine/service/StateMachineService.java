@@ -1,7 +1,11 @@
 package ru.romanow.state.machine.service;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.statemachine.StateMachine;
+import reactor.core.publisher.Mono;
+import ru.romanow.state.machine.models.SendEventsResult;
 
 public interface StateMachineService<States, Events> {
 
@@ -9,4 +13,20 @@ public interface StateMachineService<States, Events> {
     StateMachine<States, Events> acquireStateMachine(@NotNull String machineId);
 
     void releaseStateMachine(@NotNull String machineId);
+
+    @NotNull
+    SendEventsResult sendEvents(@NotNull String machineId, @NotNull List<Events> events);
+
+    // Завершается, когда все переходы State Machine, сделанные до вызова, записаны в БД
+    @NotNull
+    CompletableFuture<Void> persisted(@NotNull String machineId);
+
+    @NotNull
+    Mono<StateMachine<States, Events>> acquireStateMachineReactive(@NotNull String machineId);
+
+    @NotNull
+    Mono<Void> releaseStateMachineReactive(@NotNull String machineId);
+
+    @NotNull
+    Mono<SendEventsResult> sendEventsReactive(@NotNull String machineId, @NotNull List<Events> events);
 }
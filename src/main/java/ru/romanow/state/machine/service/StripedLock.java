@@ -0,0 +1,76 @@
+package ru.romanow.state.machine.service;
+
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Фиксированный набор блокировок, ключ (machineId) отображается на одну из них по hash.
+ * Одна и та же State Machine всегда попадает в одну блокировку, разные – в большинстве случаев в разные.
+ * <p>
+ * Блокировка не привязана к потоку и не reentrant: ожидающий не занимает поток, а продолжает выполнение
+ * в boundedElastic после завершения предыдущего владельца, повторный withLock того же ключа внутри action
+ * никогда не дождется блокировки. Очередь ожидающих – FIFO.
+ */
+final class StripedLock {
+    private final AtomicReferenceArray<CompletableFuture<Void>> stripes;
+    private final int mask;
+    private final Timer waitTimer;
+
+    StripedLock(int stripes, @NotNull Timer waitTimer) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes count must be positive, got " + stripes);
+        }
+        final int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            this.stripes.set(i, CompletableFuture.completedFuture(null));
+        }
+        this.mask = size - 1;
+        this.waitTimer = waitTimer;
+    }
+
+    /**
+     * Выполнить {@code action} под блокировкой ключа, блокировка освобождается по завершении
+     * (или отмене) возвращенного {@link Mono}.
+     */
+    @NotNull
+    <T> Mono<T> withLock(@NotNull String key, @NotNull Supplier<Mono<T>> action) {
+        return Mono.defer(() -> {
+            final var released = new CompletableFuture<Void>();
+            final var previous = stripes.getAndSet(stripe(key), released);
+
+            // Без конкуренции продолжаем в текущем потоке, иначе – после освобождения предыдущим владельцем.
+            // Копия future нужна, т.к. Mono.fromFuture при отмене отменяет саму future.
+            final Mono<Void> acquired;
+            if (previous.isDone()) {
+                waitTimer.record(0, TimeUnit.NANOSECONDS);
+                acquired = Mono.empty();
+            } else {
+                final long start = System.nanoTime();
+                acquired = Mono.fromFuture(previous.thenApply(v -> v))
+                               .publishOn(Schedulers.boundedElastic())
+                               .doOnSuccess(v -> waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            }
+
+            // Если ожидание отменено, следующий в очереди все равно не должен обогнать предыдущего владельца
+            return acquired
+                    .then(Mono.defer(action))
+                    .doFinally(signal -> previous.whenComplete((v, e) -> released.complete(null)));
+        });
+    }
+
+    int size() {
+        return stripes.length();
+    }
+
+    private int stripe(@NotNull String key) {
+        final int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
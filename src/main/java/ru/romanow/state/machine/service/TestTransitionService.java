@@ -2,10 +2,14 @@ package ru.romanow.state.machine.service;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
 import ru.romanow.state.machine.domain.enums.CalculationType;
 
 public interface TestTransitionService {
 
     List<String> nextState(@NotNull CalculationType type, @NotNull UUID calculationUid);
+
+    // Переход ставится в почтовый ящик расчета, future завершается после записи перехода в БД
+    CompletableFuture<List<String>> nextStateAsync(@NotNull CalculationType type, @NotNull UUID calculationUid);
 }
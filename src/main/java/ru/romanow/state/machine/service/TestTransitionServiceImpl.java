@@ -1,10 +1,12 @@
 package ru.romanow.state.machine.service;
 
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -12,9 +14,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.statemachine.StateMachineEventResult.ResultType;
 import org.springframework.stereotype.Service;
 import ru.romanow.state.machine.domain.enums.CalculationType;
+import ru.romanow.state.machine.models.EventDescriptor;
+import ru.romanow.state.machine.models.StateDescriptor;
 import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
 import ru.romanow.state.machine.models.cashflow.CashFlowStates;
 import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
 import ru.romanow.state.machine.models.vssdv.VssdvStates;
 import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
 import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
@@ -55,25 +60,42 @@ public class TestTransitionServiceImpl
             put(CashFlowStates.DATA_COPIED_FROM_STAGED, CashFlowEvents.CALCULATION_FINISHED_EVENT);
         }
     };
-    private static final Iterator<VssdvEvents> VSSDV_EVENTS = List.of(
-            VssdvEvents.VAR_MODEL_DATA_PREPARED_EVENT,
-            VssdvEvents.VAR_MODEL_DATA_COPIED_TO_STAGED_EVENT,
-            VssdvEvents.VAR_MODEL_ETL_START_EVENT,
-            VssdvEvents.VAR_MODEL_ETL_SENT_TO_DRP_EVENT,
-            VssdvEvents.BLACK_MODEL_DATA_COPIED_TO_STAGED_EVENT,
-            VssdvEvents.BLACK_MODEL_ETL_START_EVENT,
-            VssdvEvents.VAR_MODEL_ETL_ACCEPTED_EVENT,
-            VssdvEvents.BLACK_MODEL_ETL_SENT_TO_DRP_EVENT,
-            VssdvEvents.VAR_MODEL_ETL_COMPLETED_EVENT
-    ).iterator();
+    // Основная State Machine VSSDV после join регионов, события регионов берутся из шаблона модели
+    private static final Map<VssdvStates, VssdvEvents> VSSDV_EVENTS = new HashMap<>() {
+        {
+            put(VssdvStates.VSSDV_CALCULATION_STARTED, VssdvEvents.VSSDV_DATA_PREPARED_EVENT);
+            put(VssdvStates.VSSDV_DATA_PREPARED, VssdvEvents.VSSDV_DATA_COPIED_TO_STAGED_EVENT);
+            put(VssdvStates.VSSDV_DATA_COPIED_TO_STAGED, VssdvEvents.VSSDV_ETL_START_EVENT);
+
+            put(VssdvStates.VSSDV_ETL_START, VssdvEvents.VSSDV_ETL_SENT_TO_DRP_EVENT);
+            put(VssdvStates.VSSDV_ETL_SENT_TO_DRP, VssdvEvents.VSSDV_ETL_ACCEPTED_EVENT);
+            put(VssdvStates.VSSDV_ETL_ACCEPTED, VssdvEvents.VSSDV_ETL_COMPLETED_EVENT);
+            put(VssdvStates.VSSDV_ETL_COMPLETED, VssdvEvents.VSSDV_CALCULATION_START_EVENT);
+
+            put(VssdvStates.VSSDV_CALCULATION_START, VssdvEvents.VSSDV_CALCULATION_SENT_TO_DRP_EVENT);
+            put(VssdvStates.VSSDV_CALCULATION_SENT_TO_DRP, VssdvEvents.VSSDV_CALCULATION_ACCEPTED_EVENT);
+            put(VssdvStates.VSSDV_CALCULATION_ACCEPTED, VssdvEvents.VSSDV_CALCULATION_COMPLETED_EVENT);
+            put(VssdvStates.VSSDV_CALCULATION_COMPLETED, VssdvEvents.VSSDV_REVERSED_ETL_START_EVENT);
+
+            put(VssdvStates.VSSDV_REVERSED_ETL_START, VssdvEvents.VSSDV_REVERSED_ETL_SENT_TO_DRP_EVENT);
+            put(VssdvStates.VSSDV_REVERSED_ETL_SENT_TO_DRP, VssdvEvents.VSSDV_REVERSED_ETL_ACCEPTED_EVENT);
+            put(VssdvStates.VSSDV_REVERSED_ETL_ACCEPTED, VssdvEvents.VSSDV_REVERSED_ETL_COMPLETED_EVENT);
+            put(VssdvStates.VSSDV_REVERSED_ETL_COMPLETED, VssdvEvents.VSSDV_DATA_COPIED_FROM_STAGED_EVENT);
+
+            put(VssdvStates.VSSDV_DATA_COPIED_FROM_STAGED, VssdvEvents.VSSDV_CALCULATION_FINISHED_EVENT);
+        }
+    };
 
     private final Map<CalculationType, NextStateExecutor> executorMap;
+    private final StateMachineEventDispatcher eventDispatcher;
 
     @Autowired
     public TestTransitionServiceImpl(
             CashFlowStateMachineService cashFlowStateMachineService,
-            VssdvStateMachineService vssdvStateMachineService
+            VssdvStateMachineService vssdvStateMachineService,
+            StateMachineEventDispatcher eventDispatcher
     ) {
+        this.eventDispatcher = eventDispatcher;
         this.executorMap = Map.of(
                 CalculationType.CASH_FLOW, new CashFlowNextStateExecutor(cashFlowStateMachineService),
                 CalculationType.VSSDV, new VssdvNextStateExecutor(vssdvStateMachineService)
@@ -83,18 +105,32 @@ public class TestTransitionServiceImpl
 
     @Override
     public List<String> nextState(@NotNull CalculationType type, @NotNull UUID calculationUid) {
-        return executorMap
-                .get(type)
-                .nextState(calculationUid);
+        // acquire и sendEvent для одного расчета выполняются в его почтовом ящике последовательно
+        final var executor = executorMap.get(type);
+        final var states = eventDispatcher.execute(calculationUid.toString(), () -> executor.nextState(calculationUid));
+
+        // Ответ отдается после записи перехода в БД, ожидание вне почтового ящика не задерживает другие расчеты
+        executor.persisted(calculationUid).join();
+        return states;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> nextStateAsync(@NotNull CalculationType type, @NotNull UUID calculationUid) {
+        final var executor = executorMap.get(type);
+        return eventDispatcher
+                .dispatch(calculationUid.toString(), () -> executor.nextState(calculationUid))
+                .thenCompose(states -> executor.persisted(calculationUid).thenApply(v -> states));
     }
 
     private interface NextStateExecutor {
         List<String> nextState(@NotNull UUID calculationUid);
 
+        CompletableFuture<Void> persisted(@NotNull UUID calculationUid);
+
         CalculationType type();
     }
 
-    private abstract static class BaseNextStateExecutor<States extends Enum<States>, Events extends Enum<Events>>
+    private abstract static class BaseNextStateExecutor<States extends StateDescriptor, Events extends EventDescriptor>
             implements NextStateExecutor {
 
         @Override
@@ -102,11 +138,15 @@ public class TestTransitionServiceImpl
             final var stateMachine = stateMachineService()
                     .acquireStateMachine(calculationUid.toString());
 
-            final var state = stateMachine.getState().getId();
+            final var states = stateMachine.getState().getIds();
             logger.info("Current SM '{}' for UID '{}' with state '{}'",
-                        toHexString(stateMachine.hashCode()), stateMachine.getUuid(), state);
+                        toHexString(stateMachine.hashCode()), stateMachine.getUuid(), states);
 
-            final var event = event(state);
+            final var event = event(states);
+            if (event == null) {
+                throw new IllegalStateException(
+                        "State Machine '" + calculationUid + "' has no next event in state " + states);
+            }
             final var message = withPayload(event).build();
             final var result = stateMachine.sendEvent(just(message)).blockLast();
 
@@ -120,11 +160,17 @@ public class TestTransitionServiceImpl
                     .getState()
                     .getIds()
                     .stream()
-                    .map(Enum::name)
+                    .map(StateDescriptor::name)
                     .collect(toList());
         }
 
-        protected abstract Events event(States state);
+        @Override
+        public CompletableFuture<Void> persisted(@NotNull UUID calculationUid) {
+            return stateMachineService().persisted(calculationUid.toString());
+        }
+
+        // Следующее событие по текущим состояниям State Machine (с регионами – по всем), null в конечном состоянии
+        protected abstract Events event(Collection<States> states);
 
         protected abstract StateMachineService<States, Events> stateMachineService();
     }
@@ -135,8 +181,8 @@ public class TestTransitionServiceImpl
         private final CashFlowStateMachineService cashFlowStateMachineService;
 
         @Override
-        protected CashFlowEvents event(CashFlowStates state) {
-            return CASH_FLOW_EVENTS.get(state);
+        protected CashFlowEvents event(Collection<CashFlowStates> states) {
+            return CASH_FLOW_EVENTS.get(states.iterator().next());
         }
 
         @Override
@@ -155,9 +201,30 @@ public class TestTransitionServiceImpl
             extends BaseNextStateExecutor<VssdvStates, VssdvEvents> {
         private final VssdvStateMachineService vssdvStateMachineService;
 
+        // Пока активны регионы – событие модели, которая отстала больше других, после join – основная цепочка
         @Override
-        protected VssdvEvents event(VssdvStates state) {
-            return VSSDV_EVENTS.next();
+        protected VssdvEvents event(Collection<VssdvStates> states) {
+            VssdvEvents next = null;
+            int progress = Integer.MAX_VALUE;
+            for (var state : states) {
+                if (state.region() == StateDescriptor.MAIN) {
+                    continue;
+                }
+                final var model = VssdvModel.of(state.region());
+                final int index = model.states().indexOf(state);
+                if (index < model.events().size() && index < progress) {
+                    next = model.events().get(index);
+                    progress = index;
+                }
+            }
+            if (next != null) {
+                return next;
+            }
+            return states.stream()
+                         .map(VSSDV_EVENTS::get)
+                         .filter(Objects::nonNull)
+                         .findFirst()
+                         .orElse(null);
         }
 
         @Override
@@ -167,7 +234,7 @@ public class TestTransitionServiceImpl
 
         @Override
         public CalculationType type() {
-            return CalculationType.CASH_FLOW;
+            return CalculationType.VSSDV;
         }
     }
 }
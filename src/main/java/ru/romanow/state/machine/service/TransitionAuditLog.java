@@ -0,0 +1,153 @@
+package ru.romanow.state.machine.service;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.models.EventDescriptor;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Журнал переходов State Machine: {@link #publish} кладет компактную запись (machineId, событие, {@code state_code},
+ * версия) в заранее выделенный кольцевой буфер без блокировок и без аллокаций, фоновый поток забирает записи
+ * и пишет их в лог. Форматирование строк, декодирование состояний и ввод-вывод выполняются вне потока State Machine.
+ * <p>
+ * Несколько производителей занимают номер записи через CAS, единственный потребитель читает записи по порядку.
+ * При заполненном буфере запись отбрасывается, а не ждет: журнал не должен замедлять переходы.
+ */
+@Service
+public class TransitionAuditLog
+        implements DisposableBean {
+    private static final Logger logger = getLogger(TransitionAuditLog.class);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final long drainIntervalNanos;
+    private final Thread consumer;
+
+    // Следующий номер для производителя и следующий номер для потребителя
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public TransitionAuditLog(StateMachineProperties properties) {
+        final var audit = properties.getAudit();
+        if (audit.getCapacity() <= 0) {
+            throw new IllegalArgumentException("Audit capacity must be positive, got " + audit.getCapacity());
+        }
+        // Размер – степень двойки, чтобы номер записи переводился в индекс маской
+        final int capacity = Integer.highestOneBit(audit.getCapacity() - 1) << 1;
+        this.slots = new Slot[Math.max(capacity, 1)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = slots.length - 1;
+        this.drainIntervalNanos = audit.getDrainInterval().toNanos();
+        this.consumer = new Thread(this::run, "state-machine-audit");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    public void publish(
+            @NotNull String machineId,
+            @Nullable EventDescriptor event,
+            @NotNull byte[] stateCode,
+            long version,
+            @NotNull StateCodec<?> stateCodec
+    ) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        final var slot = slots[(int) sequence & mask];
+        slot.machineId = machineId;
+        slot.event = event;
+        slot.stateCode = stateCode;
+        slot.version = version;
+        slot.stateCodec = stateCodec;
+        slot.timestamp = System.currentTimeMillis();
+        // Запись видна потребителю только после заполнения всех полей
+        slot.published = sequence;
+    }
+
+    // Сколько записей отброшено из-за заполненного буфера
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void destroy()
+            throws InterruptedException {
+        // Опубликованные записи дописываются в лог до конца
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void run() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(drainIntervalNanos);
+            }
+        }
+        drain();
+    }
+
+    private int drain() {
+        int drained = 0;
+        long sequence = head.get();
+        Slot slot = slots[(int) sequence & mask];
+        // Занятая, но еще не заполненная запись останавливает чтение до следующего прохода
+        while (slot.published == sequence) {
+            try {
+                write(slot);
+            } catch (RuntimeException exception) {
+                logger.warn("Failed to write audit record for StateMachine '{}'", slot.machineId, exception);
+            }
+            slot.machineId = null;
+            slot.event = null;
+            slot.stateCode = null;
+            slot.stateCodec = null;
+            head.lazySet(++sequence);
+            drained++;
+            slot = slots[(int) sequence & mask];
+        }
+        return drained;
+    }
+
+    private void write(@NotNull Slot slot) {
+        if (logger.isInfoEnabled()) {
+            logger.info("StateMachine '{}' moved to {} by {}, version {} at {}",
+                        slot.machineId, slot.stateCodec.decode(slot.stateCode), slot.event, slot.version,
+                        Instant.ofEpochMilli(slot.timestamp));
+        }
+    }
+
+    private static final class Slot {
+        private volatile long published = -1;
+
+        private String machineId;
+        private EventDescriptor event;
+        private byte[] stateCode;
+        private long version;
+        private StateCodec<?> stateCodec;
+        private long timestamp;
+    }
+}
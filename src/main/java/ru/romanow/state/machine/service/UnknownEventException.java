@@ -0,0 +1,17 @@
+package ru.romanow.state.machine.service;
+
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Имя события не соответствует ни одному событию State Machine расчета, события не отправлялись
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnknownEventException
+        extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UnknownEventException(@NotNull Class<?> eventType, @NotNull List<String> events) {
+        super("Unknown " + eventType.getSimpleName() + " " + events);
+    }
+}
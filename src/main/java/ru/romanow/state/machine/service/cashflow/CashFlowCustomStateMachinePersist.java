@@ -1,20 +1,32 @@
 package ru.romanow.state.machine.service.cashflow;
 
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.romanow.state.machine.domain.enums.CalculationType;
 import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
 import ru.romanow.state.machine.models.cashflow.CashFlowStates;
 import ru.romanow.state.machine.service.BaseCustomStateMachinePersist;
 import ru.romanow.state.machine.service.CalculationStatusService;
+import ru.romanow.state.machine.service.PackedStateCodec;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.TransitionAuditLog;
 
 @Service
 public class CashFlowCustomStateMachinePersist
         extends BaseCustomStateMachinePersist<CashFlowStates, CashFlowEvents> {
 
     @Autowired
-    public CashFlowCustomStateMachinePersist(CalculationStatusService calculationStatusService) {
-        super(calculationStatusService);
+    public CashFlowCustomStateMachinePersist(
+            CalculationStatusService calculationStatusService,
+            TransitionAuditLog auditLog,
+            StateMachineMetrics metrics
+    ) {
+        super(calculationStatusService,
+              new PackedStateCodec<>(List.of(CashFlowStates.values())),
+              auditLog,
+              metrics.of(CalculationType.CASH_FLOW).getWrite());
     }
 
     @Override
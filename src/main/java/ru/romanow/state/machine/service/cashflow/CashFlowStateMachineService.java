@@ -1,12 +1,19 @@
 package ru.romanow.state.machine.service.cashflow;
 
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.statemachine.config.StateMachineFactory;
 import org.springframework.stereotype.Service;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.config.StateMachineProperties.Engine;
+import ru.romanow.state.machine.domain.enums.CalculationType;
 import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
 import ru.romanow.state.machine.models.cashflow.CashFlowStates;
 import ru.romanow.state.machine.service.BaseStateMachineService;
 import ru.romanow.state.machine.service.BaseCustomStateMachinePersist;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.table.TableStateMachineFactory;
 
 @Service
 public class CashFlowStateMachineService
@@ -15,8 +22,34 @@ public class CashFlowStateMachineService
     @Autowired
     public CashFlowStateMachineService(
             BaseCustomStateMachinePersist<CashFlowStates, CashFlowEvents> cashFlowCustomStateMachinePersist,
-            StateMachineFactory<CashFlowStates, CashFlowEvents> stateMachineFactory
+            StateMachineFactory<CashFlowStates, CashFlowEvents> stateMachineFactory,
+            StateMachineProperties stateMachineProperties,
+            StateMachineMetrics stateMachineMetrics
     ) {
-        super(cashFlowCustomStateMachinePersist, stateMachineFactory);
+        super(cashFlowCustomStateMachinePersist,
+              stateMachineFactory(cashFlowCustomStateMachinePersist, stateMachineFactory, stateMachineProperties),
+              stateMachineProperties,
+              stateMachineMetrics);
+    }
+
+    @NotNull
+    @Override
+    public CalculationType type() {
+        return CalculationType.CASH_FLOW;
+    }
+
+    // Cash Flow – линейная цепочка переходов без регионов, ее можно выполнять табличным движком
+    @NotNull
+    private static StateMachineFactory<CashFlowStates, CashFlowEvents> stateMachineFactory(
+            @NotNull BaseCustomStateMachinePersist<CashFlowStates, CashFlowEvents> stateMachinePersist,
+            @NotNull StateMachineFactory<CashFlowStates, CashFlowEvents> stateMachineFactory,
+            @NotNull StateMachineProperties properties
+    ) {
+        if (properties.getEngine() == Engine.TABLE) {
+            return new TableStateMachineFactory<>(
+                    List.of(CashFlowStates.values()), List.of(CashFlowEvents.values()),
+                    stateMachineFactory, stateMachinePersist);
+        }
+        return stateMachineFactory;
     }
 }
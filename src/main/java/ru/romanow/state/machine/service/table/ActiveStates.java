@@ -0,0 +1,26 @@
+package ru.romanow.state.machine.service.table;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Активные состояния {@link TableStateMachine}: главное состояние и по байту на регион – позиция состояния
+ * в регионе + 1, 0 – регион не активен. Неизменяемые: переход в регионе копирует массив регионов, переход в главное
+ * состояние берет общий для всех State Machine экземпляр из {@link TransitionTable}. Размер растет линейно с числом
+ * регионов.
+ */
+final class ActiveStates {
+    static final byte[] NO_REGIONS = new byte[0];
+
+    // Порядковый номер главного состояния
+    final int main;
+    // По номеру региона - 1, пустой массив – у главного состояния нет регионов
+    final byte[] regions;
+    // Сколько регионов дошло до своего источника join: join срабатывает, когда дошли все регионы
+    final int joined;
+
+    ActiveStates(int main, @NotNull byte[] regions, int joined) {
+        this.main = main;
+        this.regions = regions;
+        this.joined = joined;
+    }
+}
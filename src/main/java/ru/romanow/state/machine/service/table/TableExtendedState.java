@@ -0,0 +1,43 @@
+package ru.romanow.state.machine.service.table;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.statemachine.ExtendedState;
+
+/**
+ * Extended state табличного движка. В отличие от {@link org.springframework.statemachine.support.DefaultExtendedState}
+ * переменные хранятся без обертки {@code ObservableMap}: уведомления об изменении переменных табличный движок
+ * не рассылает. В extended state лежит только версия, поэтому таблица map создается на одну запись.
+ */
+final class TableExtendedState
+        implements ExtendedState {
+    private final Map<Object, Object> variables = new ConcurrentHashMap<>(1);
+
+    @Override
+    public Map<Object, Object> getVariables() {
+        return variables;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        final var value = variables.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (!type.isAssignableFrom(value.getClass())) {
+            throw new IllegalArgumentException("Incorrect type specified for variable '" + key + "'. Expected ["
+                                                       + type + "] but actual type is [" + value.getClass() + "]");
+        }
+        return (T) value;
+    }
+
+    @Override
+    public void setExtendedStateChangeListener(ExtendedStateChangeListener listener) {
+    }
+
+    @Override
+    public String toString() {
+        return "TableExtendedState [variables=" + variables + "]";
+    }
+}
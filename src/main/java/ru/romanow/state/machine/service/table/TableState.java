@@ -0,0 +1,198 @@
+package ru.romanow.state.machine.service.table;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.statemachine.StateContext;
+import org.springframework.statemachine.StateMachineEventResult;
+import org.springframework.statemachine.action.ActionListener;
+import org.springframework.statemachine.state.PseudoState;
+import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.state.StateListener;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Состояние табличного движка. Простое состояние создается одно на константу и общее для всех State Machine,
+ * ортогональное (главное состояние вместе с состояниями регионов) – на вызов {@link TransitionTable#view}.
+ * Действий и отложенных событий у состояний табличного движка нет.
+ * <p>
+ * Изменяемы только listener'ы: они общие для всех State Machine таблицы (State Machine отличается по
+ * {@link StateContext#getStateMachine()}), у ортогонального состояния – listener'ы его главного состояния.
+ */
+final class TableState<States, Events>
+        implements State<States, Events> {
+    private final States id;
+    private final List<States> ids;
+    private final List<State<States, Events>> states;
+    private final PseudoState<States, Events> pseudoState;
+    private final List<StateListener<States, Events>> stateListeners;
+    // Действий нет, поэтому listener'ы действий хранятся, но не вызываются
+    private final List<ActionListener<States, Events>> actionListeners;
+
+    private TableState(
+            @NotNull States id,
+            @NotNull List<States> ids,
+            @NotNull List<State<States, Events>> states,
+            @Nullable PseudoState<States, Events> pseudoState,
+            @NotNull List<StateListener<States, Events>> stateListeners,
+            @NotNull List<ActionListener<States, Events>> actionListeners
+    ) {
+        this.id = id;
+        this.ids = ids;
+        this.states = states;
+        this.pseudoState = pseudoState;
+        this.stateListeners = stateListeners;
+        this.actionListeners = actionListeners;
+    }
+
+    @NotNull
+    static <States, Events> TableState<States, Events> simple(
+            @NotNull States id,
+            @Nullable PseudoState<States, Events> pseudoState
+    ) {
+        return new TableState<>(id, List.of(id), List.of(), pseudoState,
+                                new CopyOnWriteArrayList<>(), new CopyOnWriteArrayList<>());
+    }
+
+    // Главное состояние и активные состояния регионов
+    @NotNull
+    static <States, Events> TableState<States, Events> orthogonal(
+            @NotNull TableState<States, Events> main,
+            @NotNull List<TableState<States, Events>> regions
+    ) {
+        final var ids = new ArrayList<States>(regions.size() + 1);
+        ids.add(main.getId());
+        regions.forEach(region -> ids.add(region.getId()));
+        return new TableState<>(main.getId(), List.copyOf(ids), List.<State<States, Events>>copyOf(regions),
+                                main.getPseudoState(), main.stateListeners, main.actionListeners);
+    }
+
+    boolean hasListeners() {
+        return !stateListeners.isEmpty();
+    }
+
+    void exited(@NotNull StateContext<States, Events> context) {
+        stateListeners.forEach(listener -> listener.onExit(context));
+    }
+
+    // Действий у состояния нет, поэтому оно завершено сразу после входа
+    void entered(@NotNull StateContext<States, Events> context) {
+        for (var listener : stateListeners) {
+            listener.onEntry(context);
+            listener.onComplete(context);
+            listener.doOnComplete(context).block();
+        }
+    }
+
+    @Override
+    public States getId() {
+        return id;
+    }
+
+    @Override
+    public Collection<States> getIds() {
+        return ids;
+    }
+
+    @Override
+    public Collection<State<States, Events>> getStates() {
+        return states;
+    }
+
+    @Override
+    public PseudoState<States, Events> getPseudoState() {
+        return pseudoState;
+    }
+
+    @Override
+    public boolean isSimple() {
+        return states.isEmpty();
+    }
+
+    @Override
+    public boolean isComposite() {
+        return !states.isEmpty();
+    }
+
+    @Override
+    public boolean isOrthogonal() {
+        return states.size() > 1;
+    }
+
+    @Override
+    public boolean isSubmachineState() {
+        return false;
+    }
+
+    // События обрабатывает State Machine по таблице, состояние само их не принимает
+    @Override
+    public Flux<StateMachineEventResult<States, Events>> sendEvent(Message<Events> event) {
+        return Flux.empty();
+    }
+
+    @Override
+    public boolean shouldDefer(Message<Events> event) {
+        return false;
+    }
+
+    @Override
+    public Mono<Void> exit(StateContext<States, Events> context) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> entry(StateContext<States, Events> context) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Collection<Events> getDeferredEvents() {
+        return List.of();
+    }
+
+    @Override
+    public Collection<Function<StateContext<States, Events>, Mono<Void>>> getEntryActions() {
+        return List.of();
+    }
+
+    @Override
+    public Collection<Function<StateContext<States, Events>, Mono<Void>>> getStateActions() {
+        return List.of();
+    }
+
+    @Override
+    public Collection<Function<StateContext<States, Events>, Mono<Void>>> getExitActions() {
+        return List.of();
+    }
+
+    @Override
+    public void addStateListener(StateListener<States, Events> listener) {
+        stateListeners.add(listener);
+    }
+
+    @Override
+    public void removeStateListener(StateListener<States, Events> listener) {
+        stateListeners.remove(listener);
+    }
+
+    @Override
+    public void addActionListener(ActionListener<States, Events> listener) {
+        actionListeners.add(listener);
+    }
+
+    @Override
+    public void removeActionListener(ActionListener<States, Events> listener) {
+        actionListeners.remove(listener);
+    }
+
+    @Override
+    public String toString() {
+        return "TableState [ids=" + ids + "]";
+    }
+}
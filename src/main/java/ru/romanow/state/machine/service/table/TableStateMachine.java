@@ -0,0 +1,484 @@
+package ru.romanow.state.machine.service.table;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.ExtendedState;
+import org.springframework.statemachine.StateContext;
+import org.springframework.statemachine.StateContext.Stage;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.StateMachineContext;
+import org.springframework.statemachine.StateMachineEventResult;
+import org.springframework.statemachine.StateMachineEventResult.ResultType;
+import org.springframework.statemachine.StateMachinePersist;
+import org.springframework.statemachine.access.StateMachineAccess;
+import org.springframework.statemachine.access.StateMachineAccessor;
+import org.springframework.statemachine.listener.StateMachineListener;
+import org.springframework.statemachine.monitor.StateMachineMonitor;
+import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.support.DefaultStateContext;
+import org.springframework.statemachine.support.DefaultStateMachineContext;
+import org.springframework.statemachine.support.StateMachineInterceptor;
+import org.springframework.statemachine.transition.Transition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.romanow.state.machine.models.EventDescriptor;
+import ru.romanow.state.machine.models.StateDescriptor;
+
+import static java.util.stream.Collectors.toList;
+import static org.springframework.util.CollectionUtils.isEmpty;
+
+/**
+ * State Machine поверх общей {@link TransitionTable}: своими у нее являются только активные состояния
+ * ({@link ActiveStates}), флаг запуска, extended state и listener'ы. Событие обрабатывается синхронно в потоке вызывающего
+ * кода поиском в таблице, без executor'ов Spring State Machine. Переход записывается тем же persister'ом, что и у Spring
+ * State Machine. Интерсепторы, мониторы и listener'ы состояний, добавленные через accessor, вызываются в том же порядке,
+ * что и в Spring State Machine; {@link StateContext} создается, только если они есть.
+ */
+public class TableStateMachine<States extends StateDescriptor, Events extends EventDescriptor>
+        implements StateMachine<States, Events>,
+                   Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(TableStateMachine.class);
+
+    private final TransitionTable<States, Events> table;
+    private final StateMachinePersist<States, Events, String> persist;
+    private final ExtendedState extendedState = new TableExtendedState();
+
+    // Неизменяемый список, заменяется целиком: listener'ов у State Machine один-два, а события читают его без блокировки
+    private volatile List<StateMachineListener<States, Events>> listeners = List.of();
+    private volatile List<StateMachineInterceptor<States, Events>> interceptors = List.of();
+    private volatile List<StateMachineMonitor<States, Events>> monitors = List.of();
+
+    private volatile String id;
+    private volatile UUID uuid;
+    private volatile ActiveStates active;
+    private volatile boolean running;
+    private volatile Exception error;
+
+    TableStateMachine(
+            @NotNull TransitionTable<States, Events> table,
+            @NotNull StateMachinePersist<States, Events, String> persist,
+            @Nullable UUID uuid,
+            @Nullable String id
+    ) {
+        this.table = table;
+        this.persist = persist;
+        this.uuid = uuid;
+        this.id = id;
+        this.active = table.initial();
+    }
+
+    @Override
+    public Flux<StateMachineEventResult<States, Events>> sendEvent(Mono<Message<Events>> event) {
+        return event.map(this::handle).flux();
+    }
+
+    @Override
+    public Flux<StateMachineEventResult<States, Events>> sendEvents(Flux<Message<Events>> events) {
+        return events.map(this::handle);
+    }
+
+    @Override
+    public Mono<List<StateMachineEventResult<States, Events>>> sendEventCollect(Mono<Message<Events>> event) {
+        return sendEvent(event).collectList();
+    }
+
+    @Override
+    @Deprecated
+    public boolean sendEvent(Message<Events> event) {
+        return handle(event).getResultType() == ResultType.ACCEPTED;
+    }
+
+    @Override
+    @Deprecated
+    public boolean sendEvent(Events event) {
+        return sendEvent(MessageBuilder.withPayload(event).build());
+    }
+
+    @NotNull
+    private StateMachineEventResult<States, Events> handle(@NotNull Message<Events> event) {
+        // Как в Spring State Machine: интерсептор может заменить сообщение или отклонить событие, вернув null
+        var message = event;
+        for (var interceptor : interceptors) {
+            message = interceptor.preEvent(message, this);
+            if (message == null) {
+                return StateMachineEventResult.from(this, event, ResultType.DENIED);
+            }
+        }
+        return handle(message, message.getPayload());
+    }
+
+    @NotNull
+    private StateMachineEventResult<States, Events> handle(@NotNull Message<Events> message, @NotNull Events event) {
+        final var active = this.active;
+        final int main = active.main;
+        // State Machine, восстановленная в конечное состояние, тоже не принимает события
+        if (running && !table.isEnd(main)) {
+            // Переход из любого состояния выходит из всех регионов, поэтому проверяется первым
+            if (table.anyState(event) >= 0) {
+                return accept(main, table.transition(main, event), message);
+            }
+            // Как и в Spring State Machine, событие сначала обрабатывают регионы, потом главное состояние.
+            // Регион, принимающий событие, таблица находит по событию, не перебирая регионы
+            final int state = table.regionSource(active, event);
+            if (state >= 0) {
+                return accept(state, table.transition(state, event), message);
+            }
+            if (table.target(main, event) >= 0) {
+                return accept(main, table.transition(main, event), message);
+            }
+        }
+        listeners.forEach(listener -> listener.eventNotAccepted(message));
+        return StateMachineEventResult.from(this, message, ResultType.DENIED);
+    }
+
+    @NotNull
+    private StateMachineEventResult<States, Events> accept(
+            int state,
+            @NotNull Transition<States, Events> transition,
+            @NotNull Message<Events> message
+    ) {
+        if (!fire(state, table.target(state, message.getPayload()), transition, message)) {
+            return StateMachineEventResult.from(this, message, ResultType.DENIED);
+        }
+
+        // Все регионы в конечных состояниях – переход из JOIN без события записывается отдельно
+        final int join = table.join(active);
+        if (join >= 0) {
+            final var joinTransition = table.joinTransition(active);
+            fire(join, joinTransition.getTarget().getId().ordinal(), joinTransition, message);
+        }
+
+        // Как и Spring State Machine, в конечном состоянии State Machine останавливается сама
+        if (table.isEnd(active.main)) {
+            doStop();
+        }
+        return StateMachineEventResult.from(this, message, ResultType.ACCEPTED);
+    }
+
+    // false – переход отклонен интерсептором в preTransition, состояние не изменилось
+    private boolean fire(
+            int source,
+            int target,
+            @NotNull Transition<States, Events> transition,
+            @NotNull Message<Events> message
+    ) {
+        final long start = System.nanoTime();
+        final var listeners = this.listeners;
+        // Ортогональное состояние создается на вызов, поэтому только для listener'ов
+        final var from = listeners.isEmpty() ? null : table.view(active);
+        final var sourceState = table.state(source);
+        final var targetState = table.state(target);
+        final var interceptors = this.interceptors;
+        var context = interceptors.isEmpty() && !sourceState.hasListeners() && !targetState.hasListeners()
+                ? null
+                : context(transition, message, sourceState, targetState);
+        for (var interceptor : interceptors) {
+            context = interceptor.preTransition(context);
+            if (context == null) {
+                return false;
+            }
+        }
+
+        listeners.forEach(listener -> listener.transitionStarted(transition));
+        if (context != null) {
+            sourceState.exited(context);
+        }
+        listeners.forEach(listener -> listener.stateExited(sourceState));
+
+        for (var interceptor : interceptors) {
+            interceptor.preStateChange(targetState, message, transition, this, this);
+        }
+        active = table.move(active, source, target);
+        write(message);
+
+        final var to = listeners.isEmpty() ? null : table.view(active);
+        listeners.forEach(listener -> listener.transition(transition));
+        if (context != null) {
+            targetState.entered(context);
+        }
+        listeners.forEach(listener -> listener.stateEntered(targetState));
+        for (var interceptor : interceptors) {
+            interceptor.postStateChange(targetState, message, transition, this, this);
+        }
+        listeners.forEach(listener -> listener.stateChanged(from, to));
+        for (var interceptor : interceptors) {
+            context = interceptor.postTransition(context);
+        }
+        listeners.forEach(listener -> listener.transitionEnded(transition));
+
+        final long duration = System.nanoTime() - start;
+        monitors.forEach(monitor -> monitor.transition(this, transition, duration));
+        return true;
+    }
+
+    @NotNull
+    private StateContext<States, Events> context(
+            @NotNull Transition<States, Events> transition,
+            @NotNull Message<Events> message,
+            @NotNull State<States, Events> source,
+            @NotNull State<States, Events> target
+    ) {
+        return new DefaultStateContext<>(Stage.TRANSITION, message, message.getHeaders(), extendedState, transition,
+                                         this, source, target, null);
+    }
+
+    // Контекст для persister'а такой же, как у Spring State Machine: при активных регионах главное состояние
+    // вместе с состояниями регионов, в порядке регионов
+    private void write(@NotNull Message<Events> message) {
+        final var event = message.getPayload();
+        final var active = this.active;
+        final List<StateMachineContext<States, Events>> childs = new ArrayList<>(active.regions.length);
+        for (int region = 1; region <= active.regions.length; region++) {
+            final int state = table.regionState(active, region);
+            if (state >= 0) {
+                childs.add(new DefaultStateMachineContext<>(table.id(state), event, null, null));
+            }
+        }
+        final StateMachineContext<States, Events> context =
+                new DefaultStateMachineContext<>(childs, table.id(active.main), event, null, extendedState);
+        try {
+            persist.write(context, id);
+        } catch (Exception exception) {
+            // Spring State Machine не откатывает переход при ошибке в postStateChange, а только пишет ее в лог.
+            // Версия в extended state при этом сброшена, State Machine будет восстановлена из БД при следующем acquire
+            logger.warn("Failed to persist StateMachine '{}' state {}", id, getState().getIds(), exception);
+        }
+    }
+
+    @Override
+    public Mono<Void> startReactively() {
+        return Mono.fromRunnable(() -> {
+            if (!running) {
+                running = true;
+                listeners.forEach(listener -> listener.stateMachineStarted(this));
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> stopReactively() {
+        return Mono.fromRunnable(this::doStop);
+    }
+
+    private void doStop() {
+        if (running) {
+            running = false;
+            listeners.forEach(listener -> listener.stateMachineStopped(this));
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void start() {
+        startReactively().block();
+    }
+
+    @Override
+    @Deprecated
+    public void stop() {
+        stopReactively().block();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return table.isEnd(active.main);
+    }
+
+    @Override
+    public State<States, Events> getState() {
+        return table.view(active);
+    }
+
+    @Override
+    public State<States, Events> getInitialState() {
+        return table.view(table.initial());
+    }
+
+    @Override
+    public Collection<State<States, Events>> getStates() {
+        return table.states();
+    }
+
+    @Override
+    public Collection<Transition<States, Events>> getTransitions() {
+        return table.transitions();
+    }
+
+    @Override
+    public ExtendedState getExtendedState() {
+        return extendedState;
+    }
+
+    @Override
+    public StateMachineAccessor<States, Events> getStateMachineAccessor() {
+        return new Access();
+    }
+
+    @Override
+    public void setStateMachineError(Exception exception) {
+        // Интерсептор может заменить ошибку или обработать ее, вернув null
+        var handled = exception;
+        for (var interceptor : interceptors) {
+            handled = interceptor.stateMachineError(this, handled);
+            if (handled == null) {
+                return;
+            }
+        }
+        final var reported = handled;
+        error = reported;
+        listeners.forEach(listener -> listener.stateMachineError(this, reported));
+    }
+
+    @Override
+    public boolean hasStateMachineError() {
+        return error != null;
+    }
+
+    @Override
+    public synchronized void addStateListener(StateMachineListener<States, Events> listener) {
+        final var updated = new ArrayList<>(listeners);
+        updated.add(listener);
+        listeners = List.copyOf(updated);
+    }
+
+    @Override
+    public synchronized void removeStateListener(StateMachineListener<States, Events> listener) {
+        final var updated = new ArrayList<>(listeners);
+        if (updated.remove(listener)) {
+            listeners = List.copyOf(updated);
+        }
+    }
+
+    @Override
+    public UUID getUuid() {
+        // UUID нужен только для логов, поэтому создается при первом обращении
+        if (uuid == null) {
+            uuid = UUID.randomUUID();
+        }
+        return uuid;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "TableStateMachine [id=" + id + ", state=" + getState().getIds() + ", running=" + running + "]";
+    }
+
+    // Восстановление аналогично DefaultStateMachineAccess.resetStateMachine: состояние, id и extended state
+    // берутся из контекста, null – начальное состояние. Состояния регионов – в дочерних контекстах
+    private void reset(@Nullable StateMachineContext<States, Events> context) {
+        if (context == null) {
+            active = table.initial();
+            extendedState.getVariables().clear();
+            return;
+        }
+
+        if (context.getState() == null) {
+            active = table.initial();
+        } else {
+            final var regions = isEmpty(context.getChilds())
+                    ? List.<States>of()
+                    : context.getChilds().stream().map(StateMachineContext::getState).collect(toList());
+            active = table.active(context.getState(), regions);
+        }
+        id = context.getId();
+        extendedState.getVariables().clear();
+        if (context.getExtendedState() != null) {
+            extendedState.getVariables().putAll(context.getExtendedState().getVariables());
+        }
+    }
+
+    // Регионы – часть активных состояний самой State Machine: accessor отдает единственный StateMachineAccess
+    // на нее саму
+    private class Access
+            implements StateMachineAccessor<States, Events>,
+                       StateMachineAccess<States, Events> {
+
+        @Override
+        public void doWithAllRegions(Consumer<StateMachineAccess<States, Events>> stateMachineAccess) {
+            stateMachineAccess.accept(this);
+        }
+
+        @Override
+        public List<StateMachineAccess<States, Events>> withAllRegions() {
+            return List.of(this);
+        }
+
+        @Override
+        public void doWithRegion(Consumer<StateMachineAccess<States, Events>> stateMachineAccess) {
+            stateMachineAccess.accept(this);
+        }
+
+        @Override
+        public StateMachineAccess<States, Events> withRegion() {
+            return this;
+        }
+
+        @Override
+        public Mono<Void> resetStateMachineReactively(StateMachineContext<States, Events> stateMachineContext) {
+            return Mono.fromRunnable(() -> reset(stateMachineContext));
+        }
+
+        @Override
+        @Deprecated
+        public void resetStateMachine(StateMachineContext<States, Events> stateMachineContext) {
+            reset(stateMachineContext);
+        }
+
+        @Override
+        public void addStateMachineInterceptor(StateMachineInterceptor<States, Events> interceptor) {
+            synchronized (TableStateMachine.this) {
+                final var updated = new ArrayList<>(interceptors);
+                updated.add(interceptor);
+                interceptors = List.copyOf(updated);
+            }
+        }
+
+        @Override
+        public void addStateMachineMonitor(StateMachineMonitor<States, Events> monitor) {
+            synchronized (TableStateMachine.this) {
+                final var updated = new ArrayList<>(monitors);
+                updated.add(monitor);
+                monitors = List.copyOf(updated);
+            }
+        }
+
+        // Остальные настройки нужны Spring State Machine для вложенных State Machine регионов и submachine:
+        // у табличной State Machine регионы – часть активных состояний, пересылать события и начальное событие некому,
+        // а start() никогда не входит в начальное состояние заново – восстановленное состояние задает reset
+        @Override
+        public void setRelay(StateMachine<States, Events> stateMachine) {
+        }
+
+        @Override
+        public void setInitialEnabled(boolean enabled) {
+        }
+
+        @Override
+        public void setForwardedInitialEvent(Message<Events> message) {
+        }
+
+        @Override
+        public void setParentMachine(StateMachine<States, Events> parentMachine) {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.romanow.state.machine.service.table;
+
+import java.util.List;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.StateMachinePersist;
+import org.springframework.statemachine.config.StateMachineFactory;
+import ru.romanow.state.machine.models.EventDescriptor;
+import ru.romanow.state.machine.models.StateDescriptor;
+
+/**
+ * Фабрика {@link TableStateMachine}: конфигурация Spring State Machine компилируется в {@link TransitionTable}
+ * один раз при создании фабрики, дальше State Machine создаются без обращения к Spring State Machine.
+ */
+public class TableStateMachineFactory<States extends StateDescriptor, Events extends EventDescriptor>
+        implements StateMachineFactory<States, Events> {
+    private final TransitionTable<States, Events> table;
+    private final StateMachinePersist<States, Events, String> persist;
+
+    public TableStateMachineFactory(
+            @NotNull List<States> states,
+            @NotNull List<Events> events,
+            @NotNull StateMachineFactory<States, Events> modelFactory,
+            @NotNull StateMachinePersist<States, Events, String> persist
+    ) {
+        // Состояния и переходы берутся из State Machine, собранной по той же конфигурации
+        final var model = modelFactory.getStateMachine();
+        this.table = TransitionTable.compile(states, events, model);
+        this.persist = persist;
+        model.stopReactively().block();
+    }
+
+    @Override
+    public StateMachine<States, Events> getStateMachine() {
+        return new TableStateMachine<>(table, persist, null, null);
+    }
+
+    @Override
+    public StateMachine<States, Events> getStateMachine(String machineId) {
+        return new TableStateMachine<>(table, persist, null, machineId);
+    }
+
+    @Override
+    public StateMachine<States, Events> getStateMachine(UUID uuid) {
+        return new TableStateMachine<>(table, persist, uuid, null);
+    }
+}
@@ -0,0 +1,537 @@
+package ru.romanow.state.machine.service.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.state.AbstractState;
+import org.springframework.statemachine.state.DefaultPseudoState;
+import org.springframework.statemachine.state.ForkPseudoState;
+import org.springframework.statemachine.state.JoinPseudoState;
+import org.springframework.statemachine.state.PseudoStateKind;
+import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.transition.Transition;
+import org.springframework.statemachine.transition.TransitionKind;
+import ru.romanow.state.machine.models.EventDescriptor;
+import ru.romanow.state.machine.models.StateDescriptor;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static org.springframework.util.CollectionUtils.isEmpty;
+import static ru.romanow.state.machine.models.StateDescriptor.MAIN;
+
+/**
+ * Таблица переходов, скомпилированная из конфигурации Spring State Machine. Переход ищется по индексу
+ * {@code state.ordinal() * events + event.ordinal()}, таблица неизменяемая и одна на все State Machine типа расчета.
+ * <p>
+ * Состояние State Machine вместе с регионами – {@link ActiveStates}: главное состояние и по байту на регион
+ * ({@link StateDescriptor#region()}) с позицией состояния в регионе. Fork – общие для всех State Machine активные
+ * состояния при входе в главное состояние, join – счетчик регионов, дошедших до источников join. Регион, принимающий
+ * событие, известен по событию, поэтому переход и join не перебирают регионы, а переход в регионе копирует только
+ * массив регионов.
+ * <p>
+ * Поддерживаются простые состояния, регионы одного уровня вложенности с fork / join и внешние переходы
+ * по событию без guard'ов и action'ов.
+ */
+final class TransitionTable<States extends StateDescriptor, Events extends EventDescriptor> {
+    // Позиция состояния в регионе хранится в байте со сдвигом на 1
+    private static final int MAX_REGION_STATES = 0xFF;
+
+    private final int events;
+    private final int regions;
+    private final List<States> constants;
+    private final TableState<States, Events>[] states;
+    private final boolean[] end;
+
+    // По порядковому номеру состояния: регион, позиция в регионе, родительское главное состояние (-1 – нет)
+    // и признак источника join
+    private final int[] region;
+    private final int[] position;
+    private final int[] parents;
+    private final boolean[] joinSources;
+    // По номеру региона - 1: порядковые номера состояний региона по позиции
+    private final int[][] regionStates;
+
+    // Переходы по событию: порядковый номер цели + 1 и сам переход для listener'ов
+    private final int[] targets;
+    private final Transition<States, Events>[] transitions;
+
+    // Переходы из любого состояния по событию: одна цель из всех главных состояний, в которых State Machine ждет
+    // события, порядковый номер цели + 1
+    private final int[] anyState;
+
+    // По событию: регион, в котором у события есть переходы, 0 – таких регионов нет, -1 – их несколько
+    private final int[] eventRegions;
+
+    // По порядковому номеру главного состояния: активные состояния при входе (fork), число регионов, состояние
+    // JOIN (-1 – нет) и переход из него
+    private final ActiveStates[] entered;
+    private final int[] regionCounts;
+    private final int[] joinStates;
+    private final Transition<States, Events>[] joinTransitions;
+
+    private final ActiveStates initial;
+    private final List<State<States, Events>> stateList;
+    private final List<Transition<States, Events>> transitionList;
+
+    @SuppressWarnings("unchecked")
+    private TransitionTable(
+            @NotNull List<States> statesValues,
+            @NotNull List<Events> eventsValues,
+            @NotNull StateMachine<States, Events> model
+    ) {
+        this.constants = List.copyOf(statesValues);
+        this.events = eventsValues.size();
+        for (int i = 0; i < constants.size(); i++) {
+            if (constants.get(i).ordinal() != i) {
+                throw new IllegalStateException("State " + constants.get(i) + " has ordinal "
+                                                        + constants.get(i).ordinal() + " at position " + i);
+            }
+        }
+        for (int i = 0; i < events; i++) {
+            if (eventsValues.get(i).ordinal() != i) {
+                throw new IllegalStateException("Event " + eventsValues.get(i) + " has ordinal "
+                                                        + eventsValues.get(i).ordinal() + " at position " + i);
+            }
+        }
+
+        final int stateCount = constants.size();
+        this.regions = constants.stream().mapToInt(StateDescriptor::region).max().orElse(MAIN);
+        this.states = (TableState<States, Events>[]) new TableState<?, ?>[stateCount];
+        this.end = new boolean[stateCount];
+        this.region = new int[stateCount];
+        this.position = new int[stateCount];
+        this.parents = new int[stateCount];
+        this.joinSources = new boolean[stateCount];
+        this.regionStates = new int[regions][];
+        this.targets = new int[stateCount * events];
+        this.transitions = (Transition<States, Events>[]) new Transition<?, ?>[stateCount * events];
+        this.anyState = new int[events];
+        this.eventRegions = new int[events];
+        this.entered = new ActiveStates[stateCount];
+        this.regionCounts = new int[stateCount];
+        this.joinStates = new int[stateCount];
+        this.joinTransitions = (Transition<States, Events>[]) new Transition<?, ?>[stateCount];
+        Arrays.fill(parents, -1);
+        Arrays.fill(joinStates, -1);
+
+        compileRegions();
+        final var forks = new byte[stateCount][];
+        final var joinPseudoStates = new ArrayList<State<States, Events>>();
+        compileStates(model.getStates(), -1, forks, joinPseudoStates);
+        joinPseudoStates.forEach(this::compileJoin);
+        compileTransitions(model.getTransitions());
+        compileAnyState();
+        compileEventRegions();
+        for (int state = 0; state < stateCount; state++) {
+            if (states[state] != null && region[state] == MAIN) {
+                entered[state] = forks[state] != null
+                        ? new ActiveStates(state, forks[state], joined(forks[state]))
+                        : new ActiveStates(state, ActiveStates.NO_REGIONS, 0);
+            }
+        }
+
+        this.initial = entered[model.getInitialState().getId().ordinal()];
+        // Как у Spring State Machine – состояния верхнего уровня, но свои: listener'ы добавляются к ним
+        this.stateList = model.getStates()
+                              .stream()
+                              .map(state -> states[state.getId().ordinal()])
+                              .filter(Objects::nonNull)
+                              .distinct()
+                              .collect(toUnmodifiableList());
+        this.transitionList = List.copyOf(model.getTransitions());
+    }
+
+    @NotNull
+    static <States extends StateDescriptor, Events extends EventDescriptor>
+    TransitionTable<States, Events> compile(
+            @NotNull List<States> statesValues,
+            @NotNull List<Events> eventsValues,
+            @NotNull StateMachine<States, Events> model
+    ) {
+        return new TransitionTable<>(statesValues, eventsValues, model);
+    }
+
+    // Порядковый номер цели перехода из состояния state по событию, -1 – событие в этом состоянии не принимается
+    int target(int state, @NotNull Events event) {
+        return targets[index(state, event)] - 1;
+    }
+
+    // Цель перехода по событию из любого состояния, -1 – у события такого перехода нет
+    int anyState(@NotNull Events event) {
+        return anyState[event.ordinal()] - 1;
+    }
+
+    @NotNull
+    Transition<States, Events> transition(int state, @NotNull Events event) {
+        return transitions[index(state, event)];
+    }
+
+    // Активное состояние региона, которое принимает событие, -1 – событие не принимает ни один регион
+    int regionSource(@NotNull ActiveStates active, @NotNull Events event) {
+        final int eventRegion = eventRegions[event.ordinal()];
+        if (eventRegion == 0 || active.regions.length == 0) {
+            return -1;
+        }
+        if (eventRegion > 0) {
+            return regionSource(active, eventRegion, event);
+        }
+        for (int regionIndex = 1; regionIndex <= active.regions.length; regionIndex++) {
+            final int state = regionSource(active, regionIndex, event);
+            if (state >= 0) {
+                return state;
+            }
+        }
+        return -1;
+    }
+
+    private int regionSource(@NotNull ActiveStates active, int regionIndex, @NotNull Events event) {
+        final int state = regionState(active, regionIndex);
+        return state >= 0 && !end[state] && target(state, event) >= 0 ? state : -1;
+    }
+
+    // Активные состояния после перехода из состояния state в target: переход в главное состояние выходит
+    // из всех регионов
+    @NotNull
+    ActiveStates move(@NotNull ActiveStates active, int state, int target) {
+        if (region[target] == MAIN) {
+            return entered[target];
+        }
+        final var regionPositions = active.regions.clone();
+        regionPositions[region[target] - 1] = (byte) (position[target] + 1);
+        final int joined = active.joined + (joinSources[target] ? 1 : 0) - (joinSources[state] ? 1 : 0);
+        return new ActiveStates(active.main, regionPositions, joined);
+    }
+
+    // Состояние JOIN, если все регионы главного состояния дошли до источников join, иначе -1
+    int join(@NotNull ActiveStates active) {
+        final int main = active.main;
+        return joinStates[main] >= 0 && active.joined == regionCounts[main] ? joinStates[main] : -1;
+    }
+
+    @NotNull
+    Transition<States, Events> joinTransition(@NotNull ActiveStates active) {
+        return joinTransitions[active.main];
+    }
+
+    // Активные состояния, восстановленные из главного состояния и состояний регионов
+    @NotNull
+    ActiveStates active(@NotNull States main, @NotNull Collection<States> regionIds) {
+        final int state = main.ordinal();
+        if (region[state] != MAIN || states[state] == null) {
+            throw new IllegalArgumentException("State '" + main + "' is not a main state");
+        }
+        if (regionIds.isEmpty()) {
+            return entered[state];
+        }
+        final var regionPositions = new byte[regions];
+        int joined = 0;
+        for (var regionId : regionIds) {
+            final int index = regionId.ordinal();
+            if (parents[index] != state) {
+                throw new IllegalArgumentException("State '" + regionId + "' is not in a region of '" + main + "'");
+            }
+            regionPositions[region[index] - 1] = (byte) (position[index] + 1);
+            joined += joinSources[index] ? 1 : 0;
+        }
+        return new ActiveStates(state, regionPositions, joined);
+    }
+
+    @NotNull
+    ActiveStates initial() {
+        return initial;
+    }
+
+    // Порядковый номер активного состояния региона regionIndex (с 1), -1 – регион не активен
+    int regionState(@NotNull ActiveStates active, int regionIndex) {
+        final int regionPosition = active.regions[regionIndex - 1] & MAX_REGION_STATES;
+        return regionPosition != 0 ? regionStates[regionIndex - 1][regionPosition - 1] : -1;
+    }
+
+    boolean isEnd(int state) {
+        return end[state];
+    }
+
+    @NotNull
+    States id(int state) {
+        return constants.get(state);
+    }
+
+    @NotNull
+    TableState<States, Events> state(int state) {
+        return states[state];
+    }
+
+    // Состояние для getState(): простое без регионов, иначе – главное вместе с активными состояниями регионов.
+    // Ортогональное состояние создается на вызов: сочетаний состояний регионов слишком много, чтобы хранить их все
+    @NotNull
+    State<States, Events> view(@NotNull ActiveStates active) {
+        if (active.regions.length == 0) {
+            return states[active.main];
+        }
+        final var regionViews = new ArrayList<TableState<States, Events>>(active.regions.length);
+        for (int regionIndex = 1; regionIndex <= active.regions.length; regionIndex++) {
+            final int state = regionState(active, regionIndex);
+            if (state >= 0) {
+                regionViews.add(states[state]);
+            }
+        }
+        return TableState.orthogonal(states[active.main], regionViews);
+    }
+
+    @NotNull
+    Collection<State<States, Events>> states() {
+        return stateList;
+    }
+
+    @NotNull
+    Collection<Transition<States, Events>> transitions() {
+        return transitionList;
+    }
+
+    // Регион и позиция каждого состояния: состояния региона в порядке ordinal()
+    private void compileRegions() {
+        final var regionSizes = new int[regions];
+        for (var constant : constants) {
+            final int index = constant.ordinal();
+            region[index] = constant.region();
+            if (region[index] != MAIN) {
+                position[index] = regionSizes[region[index] - 1]++;
+            }
+        }
+        for (int regionIndex = 0; regionIndex < regions; regionIndex++) {
+            if (regionSizes[regionIndex] > MAX_REGION_STATES) {
+                throw new IllegalStateException("Region " + (regionIndex + 1) + " has more than "
+                                                        + MAX_REGION_STATES + " states");
+            }
+            regionStates[regionIndex] = new int[regionSizes[regionIndex]];
+        }
+        for (var constant : constants) {
+            final int index = constant.ordinal();
+            if (region[index] != MAIN) {
+                regionStates[region[index] - 1][position[index]] = index;
+            }
+        }
+    }
+
+    private void compileStates(
+            @NotNull Collection<State<States, Events>> modelStates,
+            int parent,
+            byte[][] forks,
+            @NotNull List<State<States, Events>> joinPseudoStates
+    ) {
+        for (var state : modelStates) {
+            final int index = state.getId().ordinal();
+            final var kind = state.getPseudoState() != null ? state.getPseudoState().getKind() : null;
+            if ((parent < 0) != (region[index] == MAIN)) {
+                throw new IllegalStateException("State '" + state.getId() + "' is in a wrong region for its type");
+            }
+
+            // Fork описан отдельным псевдосостоянием с тем же id, что и состояние с регионами
+            if (kind == PseudoStateKind.FORK) {
+                for (var target : ((ForkPseudoState<States, Events>) state.getPseudoState()).getForks()) {
+                    forks[index] = fork(forks[index], target.getId().ordinal(), true);
+                }
+                continue;
+            }
+            if (kind == PseudoStateKind.JOIN) {
+                joinPseudoStates.add(state);
+            } else if (kind != null && kind != PseudoStateKind.INITIAL && kind != PseudoStateKind.END) {
+                throw new IllegalStateException("Pseudo state " + kind + " of '" + state.getId()
+                                                        + "' is not supported by table engine");
+            }
+
+            parents[index] = parent;
+            end[index] = kind == PseudoStateKind.END;
+            states[index] = TableState.simple(state.getId(), kind != null ? new DefaultPseudoState<>(kind) : null);
+
+            if (state.isSimple()) {
+                continue;
+            }
+            if (parent >= 0 || state.isSubmachineState() || !(state instanceof AbstractState)) {
+                throw new IllegalStateException("State '" + state.getId() + "' is not supported by table engine, "
+                                                        + "only one level of regions is allowed");
+            }
+            final var used = new boolean[regions];
+            for (var stateRegion : ((AbstractState<States, Events>) state).getRegions()) {
+                final var initialState = ((StateMachine<States, Events>) stateRegion).getInitialState().getId();
+                final int regionIndex = region[initialState.ordinal()];
+                if (regionIndex == MAIN || used[regionIndex - 1]) {
+                    throw new IllegalStateException("Regions of '" + state.getId() + "' share region "
+                                                            + regionIndex);
+                }
+                used[regionIndex - 1] = true;
+                regionCounts[index]++;
+                forks[index] = fork(forks[index], initialState.ordinal(), false);
+                compileStates(stateRegion.getStates(), index, forks, joinPseudoStates);
+            }
+        }
+    }
+
+    // Позиции регионов при входе: цель fork задает состояние региона, начальное состояние – если fork его не задал
+    @NotNull
+    private byte[] fork(byte[] fork, int state, boolean replace) {
+        if (region[state] == MAIN) {
+            throw new IllegalStateException("Fork target '" + constants.get(state) + "' is not in a region");
+        }
+        final var result = fork != null ? fork : new byte[regions];
+        if (replace || result[region[state] - 1] == 0) {
+            result[region[state] - 1] = (byte) (position[state] + 1);
+        }
+        return result;
+    }
+
+    private int joined(@NotNull byte[] regionPositions) {
+        int joined = 0;
+        for (int regionIndex = 0; regionIndex < regionPositions.length; regionIndex++) {
+            final int regionPosition = regionPositions[regionIndex] & MAX_REGION_STATES;
+            if (regionPosition != 0 && joinSources[regionStates[regionIndex][regionPosition - 1]]) {
+                joined++;
+            }
+        }
+        return joined;
+    }
+
+    private void compileJoin(@NotNull State<States, Events> state) {
+        int parent = -1;
+        final var used = new boolean[regions];
+        for (var sources : ((JoinPseudoState<States, Events>) state.getPseudoState()).getJoins()) {
+            if (sources.size() != 1) {
+                throw new IllegalStateException("Join '" + state.getId() + "' must have one source per region");
+            }
+            final int source = sources.get(0).getId().ordinal();
+            if (parent >= 0 && parents[source] != parent) {
+                throw new IllegalStateException("Join '" + state.getId() + "' sources are in different states");
+            }
+            parent = parents[source];
+            if (parent < 0) {
+                break;
+            }
+            if (used[region[source] - 1]) {
+                throw new IllegalStateException("Join '" + state.getId() + "' must have one source per region");
+            }
+            used[region[source] - 1] = true;
+            joinSources[source] = true;
+        }
+        if (parent < 0) {
+            throw new IllegalStateException("Join '" + state.getId() + "' has no sources in regions");
+        }
+        for (int regionIndex = 0; regionIndex < regions; regionIndex++) {
+            if (!used[regionIndex] && regionOf(parent, regionIndex + 1)) {
+                throw new IllegalStateException("Join '" + state.getId() + "' must have one source per region");
+            }
+        }
+        joinStates[parent] = state.getId().ordinal();
+    }
+
+    // Есть ли у главного состояния state регион regionIndex
+    private boolean regionOf(int state, int regionIndex) {
+        for (var regionState : regionStates[regionIndex - 1]) {
+            if (parents[regionState] == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compileTransitions(@NotNull Collection<Transition<States, Events>> modelTransitions) {
+        for (var transition : modelTransitions) {
+            final int source = transition.getSource().getId().ordinal();
+            final int target = transition.getTarget().getId().ordinal();
+            if (transition.getKind() != TransitionKind.EXTERNAL
+                    || transition.getGuard() != null
+                    || !isEmpty(transition.getActions())
+                    || (region[target] != MAIN && region[target] != region[source])) {
+                throw unsupported(transition);
+            }
+
+            // Переходы без события допускаются только в состояние JOIN из его источников (они уже в условии join)
+            // и из состояния JOIN
+            if (transition.getTrigger() == null || transition.getTrigger().getEvent() == null) {
+                final int joinParent = joinParent(target);
+                if (joinParent >= 0 && joinSources[source] && parents[source] == joinParent) {
+                    continue;
+                }
+                final int parent = joinParent(source);
+                if (parent < 0 || region[target] != MAIN || joinTransitions[parent] != null) {
+                    throw unsupported(transition);
+                }
+                joinTransitions[parent] = transition;
+                continue;
+            }
+
+            final int index = index(source, transition.getTrigger().getEvent());
+            if (transitions[index] != null) {
+                throw new IllegalStateException("Duplicate transition from '" + transition.getSource().getId()
+                                                        + "' by '" + transition.getTrigger().getEvent() + "'");
+            }
+            targets[index] = target + 1;
+            transitions[index] = transition;
+        }
+
+        for (int state = 0; state < joinStates.length; state++) {
+            if (joinStates[state] >= 0 && joinTransitions[state] == null) {
+                throw new IllegalStateException("Join '" + constants.get(joinStates[state]) + "' has no target");
+            }
+        }
+    }
+
+    private void compileAnyState() {
+        for (int event = 0; event < events; event++) {
+            int target = 0;
+            for (int state = 0; state < states.length; state++) {
+                if (states[state] == null || region[state] != MAIN || end[state] || isJoin(state)) {
+                    continue;
+                }
+                final int stateTarget = targets[state * events + event];
+                if (stateTarget == 0 || (target != 0 && stateTarget != target)) {
+                    target = 0;
+                    break;
+                }
+                target = stateTarget;
+            }
+            anyState[event] = target;
+        }
+    }
+
+    private void compileEventRegions() {
+        for (int state = 0; state < states.length; state++) {
+            if (states[state] == null || region[state] == MAIN) {
+                continue;
+            }
+            for (int event = 0; event < events; event++) {
+                if (targets[state * events + event] != 0) {
+                    final int eventRegion = eventRegions[event];
+                    eventRegions[event] = eventRegion == 0 || eventRegion == region[state] ? region[state] : -1;
+                }
+            }
+        }
+    }
+
+    private boolean isJoin(int state) {
+        final var pseudoState = states[state].getPseudoState();
+        return pseudoState != null && pseudoState.getKind() == PseudoStateKind.JOIN;
+    }
+
+    private int joinParent(int joinState) {
+        for (int state = 0; state < joinStates.length; state++) {
+            if (joinStates[state] == joinState) {
+                return state;
+            }
+        }
+        return -1;
+    }
+
+    @NotNull
+    private IllegalStateException unsupported(@NotNull Transition<States, Events> transition) {
+        return new IllegalStateException("Transition from '" + transition.getSource().getId()
+                                                 + "' is not supported by table engine, "
+                                                 + "only external transitions by event are allowed");
+    }
+
+    private int index(int state, @NotNull Events event) {
+        return state * events + event.ordinal();
+    }
+}
@@ -1,25 +1,32 @@
 package ru.romanow.state.machine.service.vssdv;
 
-import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import ru.romanow.state.machine.models.StateDescriptor.StateMachineType;
+import ru.romanow.state.machine.domain.enums.CalculationType;
 import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
 import ru.romanow.state.machine.models.vssdv.VssdvStates;
 import ru.romanow.state.machine.service.BaseCustomStateMachinePersist;
 import ru.romanow.state.machine.service.CalculationStatusService;
-
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.BLACK_MODEL;
-import static ru.romanow.state.machine.models.StateDescriptor.StateMachineType.VAR_MODEL;
+import ru.romanow.state.machine.service.PackedStateCodec;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.TransitionAuditLog;
 
 @Service
 public class VssdvCustomStateMachinePersist
         extends BaseCustomStateMachinePersist<VssdvStates, VssdvEvents> {
 
     @Autowired
-    public VssdvCustomStateMachinePersist(CalculationStatusService calculationStatusService) {
-        super(calculationStatusService);
+    public VssdvCustomStateMachinePersist(
+            CalculationStatusService calculationStatusService,
+            TransitionAuditLog auditLog,
+            StateMachineMetrics metrics
+    ) {
+        super(calculationStatusService,
+              new PackedStateCodec<>(VssdvStates.values()),
+              auditLog,
+              metrics.of(CalculationType.VSSDV).getWrite());
     }
 
     @Override
@@ -28,8 +35,8 @@ public class VssdvCustomStateMachinePersist
     }
 
     @Override
-    protected List<StateMachineType> secondaryMachineTypes() {
-        return List.of(VAR_MODEL, BLACK_MODEL);
+    protected int regions() {
+        return VssdvModel.models().size();
     }
 
 }
@@ -1,12 +1,18 @@
 package ru.romanow.state.machine.service.vssdv;
 
+import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.statemachine.config.StateMachineFactory;
 import org.springframework.stereotype.Service;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.config.StateMachineProperties.Engine;
+import ru.romanow.state.machine.domain.enums.CalculationType;
 import ru.romanow.state.machine.models.vssdv.VssdvEvents;
 import ru.romanow.state.machine.models.vssdv.VssdvStates;
 import ru.romanow.state.machine.service.BaseStateMachineService;
 import ru.romanow.state.machine.service.BaseCustomStateMachinePersist;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.table.TableStateMachineFactory;
 
 @Service
 public class VssdvStateMachineService
@@ -15,8 +21,33 @@ public class VssdvStateMachineService
     @Autowired
     public VssdvStateMachineService(
             BaseCustomStateMachinePersist<VssdvStates, VssdvEvents> vssdvCustomStateMachinePersist,
-            StateMachineFactory<VssdvStates, VssdvEvents> stateMachineFactory
+            StateMachineFactory<VssdvStates, VssdvEvents> stateMachineFactory,
+            StateMachineProperties stateMachineProperties,
+            StateMachineMetrics stateMachineMetrics
     ) {
-        super(vssdvCustomStateMachinePersist, stateMachineFactory);
+        super(vssdvCustomStateMachinePersist,
+              stateMachineFactory(vssdvCustomStateMachinePersist, stateMachineFactory, stateMachineProperties),
+              stateMachineProperties,
+              stateMachineMetrics);
+    }
+
+    @NotNull
+    @Override
+    public CalculationType type() {
+        return CalculationType.VSSDV;
+    }
+
+    // Регионы моделей табличный движок хранит байтом на регион, join – счетчик дошедших до него регионов
+    @NotNull
+    private static StateMachineFactory<VssdvStates, VssdvEvents> stateMachineFactory(
+            @NotNull BaseCustomStateMachinePersist<VssdvStates, VssdvEvents> stateMachinePersist,
+            @NotNull StateMachineFactory<VssdvStates, VssdvEvents> stateMachineFactory,
+            @NotNull StateMachineProperties properties
+    ) {
+        if (properties.getEngine() == Engine.TABLE) {
+            return new TableStateMachineFactory<>(
+                    VssdvStates.values(), VssdvEvents.values(), stateMachineFactory, stateMachinePersist);
+        }
+        return stateMachineFactory;
     }
 }
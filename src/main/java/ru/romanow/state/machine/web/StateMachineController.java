@@ -1,24 +1,135 @@
 package ru.romanow.state.machine.web;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.romanow.state.machine.domain.enums.CalculationType;
-import ru.romanow.state.machine.service.TestTransitionService;
+import ru.romanow.state.machine.models.BulkResult;
+import ru.romanow.state.machine.models.EventTicket;
+import ru.romanow.state.machine.models.SendEventsResult;
+import ru.romanow.state.machine.service.CalculationEventService;
+import ru.romanow.state.machine.service.EventTicketService;
+import ru.romanow.state.machine.service.ReactiveTransitionService;
 
+import static java.util.Arrays.stream;
+
+/**
+ * Один контроллер для Spring MVC (Tomcat) и WebFlux (Netty, сборка с {@code -Preactive}): методы возвращают
+ * Mono / Flux, и оба стека пишут ответ по завершении задачи в почтовом ящике расчета, не занимая поток на ожидание.
+ * <p>
+ * Восстановление, sendEvent и запись через JPA остаются блокирующими и выполняются только в почтовых ящиках.
+ * Запрос в обработке на Tomcat все равно занимает поток на разбор запроса и запись ответа, и при сотнях соединений
+ * пул растет до {@code server.tomcat.threads.max}; на Netty это задача в почтовом ящике без потока, предел –
+ * {@code queue-capacity} почтового ящика.
+ */
 @RequestMapping("/api/v1")
 @RestController
 @RequiredArgsConstructor
 public class StateMachineController {
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
 
-    private final TestTransitionService transitionService;
+    private final ReactiveTransitionService transitionService;
+    private final CalculationEventService eventService;
+    private final EventTicketService ticketService;
 
     @GetMapping("/calculation/{type}/next-state/{calculationUid}")
-    public List<String> nextState(@PathVariable String type, @PathVariable UUID calculationUid) {
+    public Mono<List<String>> nextState(@PathVariable String type, @PathVariable UUID calculationUid) {
         return transitionService.nextState(CalculationType.find(type), calculationUid);
     }
+
+    // Синхронно ответ отдается после записи переходов в БД. С async=true или Prefer: respond-async события ставятся
+    // в почтовый ящик расчета, ответ – 202 с квитанцией, результат – по ссылке из Location
+    @PostMapping("/calculation/{type}/events/{calculationUid}")
+    public Mono<ResponseEntity<?>> sendEvents(
+            @PathVariable String type,
+            @PathVariable UUID calculationUid,
+            @RequestBody List<String> events,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestHeader(name = PREFER, required = false) String prefer,
+            UriComponentsBuilder uriBuilder
+    ) {
+        final var calculationType = CalculationType.find(type);
+        if (!async && !respondAsync(prefer)) {
+            return transitionService
+                    .sendEvents(calculationType, calculationUid, events)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok);
+        }
+        final CompletableFuture<SendEventsResult> future;
+        try {
+            future = eventService.sendEventsAsync(calculationType, calculationUid, events);
+        } catch (RejectedExecutionException exception) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                              "Mailbox of calculation '" + calculationUid + "' is full", exception);
+        }
+        final var ticket = ticketService.submit(calculationUid, future);
+        final var location = uriBuilder
+                .path("/api/v1/tickets/{ticket}")
+                .buildAndExpand(ticket.getTicket())
+                .toUri();
+        return Mono.just(ResponseEntity
+                                 .accepted()
+                                 .location(location)
+                                 .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+                                 .body(ticket));
+    }
+
+    // Пакетные запросы – NDJSON: строка JSON на расчет по мере готовности, ответ не буферизуется целиком
+    // и не ждет самого медленного расчета
+    @PostMapping(path = "/calculation/{type}/next-state", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkResult<List<String>>> nextStates(
+            @PathVariable String type,
+            @RequestBody List<UUID> calculationUids
+    ) {
+        return transitionService.nextStates(CalculationType.find(type), calculationUids);
+    }
+
+    @PostMapping(path = "/calculation/{type}/events", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkResult<SendEventsResult>> sendEvents(
+            @PathVariable String type,
+            @RequestBody Map<UUID, List<String>> events
+    ) {
+        return transitionService.sendEvents(CalculationType.find(type), events);
+    }
+
+    // Без wait – текущее состояние квитанции, с wait (ISO-8601, например PT10S) – ждет ее завершения
+    @GetMapping("/tickets/{ticket}")
+    public Mono<EventTicket> ticket(
+            @PathVariable UUID ticket,
+            @RequestParam(defaultValue = "PT0S") Duration wait
+    ) {
+        final var result = ticketService.await(ticket, wait);
+        if (result == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Ticket '" + ticket + "' not found");
+        }
+        return Mono.fromFuture(result);
+    }
+
+    // Prefer (RFC 7240): предпочтения через запятую, параметры предпочтения после ';' не учитываются
+    private static boolean respondAsync(@Nullable String prefer) {
+        return prefer != null && stream(prefer.split(","))
+                .map(preference -> preference.split(";", 2)[0].trim())
+                .anyMatch(RESPOND_ASYNC::equalsIgnoreCase);
+    }
 }
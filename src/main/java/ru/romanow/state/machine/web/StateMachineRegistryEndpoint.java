@@ -0,0 +1,35 @@
+package ru.romanow.state.machine.web;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import ru.romanow.state.machine.domain.enums.CalculationType;
+import ru.romanow.state.machine.service.BaseStateMachineService;
+
+@Component
+@Endpoint(id = "statemachines")
+@RequiredArgsConstructor
+public class StateMachineRegistryEndpoint {
+
+    private final List<BaseStateMachineService<?, ?>> stateMachineServices;
+
+    @ReadOperation
+    public Map<CalculationType, Map<String, Object>> registries() {
+        var result = new LinkedHashMap<CalculationType, Map<String, Object>>();
+        for (var service : stateMachineServices) {
+            var stats = service.registryStats();
+            result.put(service.type(), Map.of(
+                    "size", service.registrySize(),
+                    "hits", stats.hitCount(),
+                    "misses", stats.missCount(),
+                    "hitRate", stats.hitRate(),
+                    "evictions", stats.evictionCount()
+            ));
+        }
+        return result;
+    }
+}
@@ -24,10 +24,12 @@ import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
 import ru.romanow.state.machine.models.cashflow.CashFlowStates;
 import ru.romanow.state.machine.repostitory.CalculationRepository;
 import ru.romanow.state.machine.repostitory.CalculationStatusRepository;
+import ru.romanow.state.machine.service.cashflow.CashFlowCustomStateMachinePersist;
 import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
 
 import static java.util.List.of;
 import static java.util.UUID.fromString;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.data.domain.Pageable.unpaged;
 import static org.springframework.messaging.support.MessageBuilder.createMessage;
@@ -87,6 +89,9 @@ class CashFlowStateMachineApplicationTest {
     @Autowired
     private CashFlowStateMachineService stateMachineService;
 
+    @Autowired
+    private CashFlowCustomStateMachinePersist stateMachinePersist;
+
     @BeforeEach
     void init() {
         calculationRepository.saveAll(
@@ -147,9 +152,9 @@ class CashFlowStateMachineApplicationTest {
         assertThat(result.getResultType()).isEqualTo(ResultType.DENIED);
         assertThat(stateMachine.getState().getId()).isEqualTo(CashFlowStates.CALCULATION_STARTED);
 
-        var states = calculationStatusRepository
-                .getCalculationLastState(CALCULATION_UID_1, unpaged());
-        assertThat(states).isEmpty();
+        var statuses = calculationStatusRepository
+                .getCalculationLastStatus(CALCULATION_UID_1, unpaged());
+        assertThat(statuses).isEmpty();
     }
 
     private void nextState(@NotNull StateMachine<CashFlowStates, CashFlowEvents> stateMachine,
@@ -165,7 +170,11 @@ class CashFlowStateMachineApplicationTest {
 
         stateHistory.addFirst(expectedState.name());
         final var states = calculationStatusRepository
-                .getCalculationLastState(fromString(stateMachine.getId()), unpaged());
+                .getCalculationLastStatus(fromString(stateMachine.getId()), unpaged())
+                .stream()
+                .flatMap(status -> stateMachinePersist.states(status).stream())
+                .map(Enum::name)
+                .collect(toList());
 
         assertThat(states).hasSize(stateHistory.size());
         assertThat(states).containsExactly(stateHistory.toArray(String[]::new));
@@ -19,19 +19,25 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 import ru.romanow.state.machine.config.DatabaseTestConfiguration;
 import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
+import ru.romanow.state.machine.models.vssdv.VssdvModelStates;
 import ru.romanow.state.machine.models.vssdv.VssdvStates;
 import ru.romanow.state.machine.repostitory.CalculationRepository;
 import ru.romanow.state.machine.repostitory.CalculationStatusRepository;
+import ru.romanow.state.machine.service.vssdv.VssdvCustomStateMachinePersist;
 import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
 
 import static java.util.List.of;
 import static java.util.UUID.fromString;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.data.domain.Pageable.unpaged;
 import static org.springframework.messaging.support.MessageBuilder.withPayload;
 import static reactor.core.publisher.Mono.just;
 import static ru.romanow.state.machine.domain.enums.CalculationType.VSSDV;
 import static ru.romanow.state.machine.models.vssdv.VssdvEvents.*;
+import static ru.romanow.state.machine.models.vssdv.VssdvModelEvents.*;
+import static ru.romanow.state.machine.models.vssdv.VssdvModelStates.*;
 import static ru.romanow.state.machine.models.vssdv.VssdvStates.*;
 import static ru.romanow.state.machine.utils.CalculationBuilder.buildCalculation;
 
@@ -44,7 +50,9 @@ class VssdvStateMachineApplicationTest {
 
     private static final UUID CALCULATION_UID_1 = fromString("ba012596-4be8-4c96-9721-07b7f9902a6a");
     private static final UUID CALCULATION_UID_2 = fromString("1066c60a-b6af-4b87-9207-c1109d7dfaa1");
-    private static final String DELIMITER = ";";
+
+    private static final VssdvModel VAR_MODEL = VssdvModel.of("VAR_MODEL");
+    private static final VssdvModel BLACK_MODEL = VssdvModel.of("BLACK_MODEL");
 
     @Autowired
     private CalculationRepository calculationRepository;
@@ -55,6 +63,9 @@ class VssdvStateMachineApplicationTest {
     @Autowired
     private VssdvStateMachineService stateMachineService;
 
+    @Autowired
+    private VssdvCustomStateMachinePersist stateMachinePersist;
+
     @BeforeEach
     void init() {
         calculationRepository.saveAll(
@@ -76,133 +87,133 @@ class VssdvStateMachineApplicationTest {
         var stateMachine = stateMachineService.acquireStateMachine(calculationUid);
 
         assertThat(stateMachine.getState().getIds())
-                .containsExactlyInAnyOrder(CALCULATION_STARTED,
-                                           VAR_MODEL_CALCULATION_STARTED,
-                                           BLACK_MODEL_CALCULATION_STARTED);
+                .containsExactlyInAnyOrderElementsOf(
+                        modelStates(VssdvModelStates.CALCULATION_STARTED, VssdvModelStates.CALCULATION_STARTED));
 
-        nextState(stateMachine, VAR_MODEL_DATA_PREPARED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_DATA_PREPARED, BLACK_MODEL_CALCULATION_STARTED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(DATA_PREPARED_EVENT),
+                  modelStates(DATA_PREPARED, VssdvModelStates.CALCULATION_STARTED), stateHistory);
 
         stateMachine = stateMachineService.acquireStateMachine(calculationUid);
 
-        nextState(stateMachine, BLACK_MODEL_DATA_PREPARED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_DATA_PREPARED, BLACK_MODEL_DATA_PREPARED), stateHistory);
+        nextState(stateMachine, BLACK_MODEL.event(DATA_PREPARED_EVENT),
+                  modelStates(DATA_PREPARED, DATA_PREPARED), stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_DATA_COPIED_TO_STAGED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_DATA_COPIED_TO_STAGED, BLACK_MODEL_DATA_PREPARED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(DATA_COPIED_TO_STAGED_EVENT),
+                  modelStates(DATA_COPIED_TO_STAGED, DATA_PREPARED), stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_DATA_COPIED_TO_STAGED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_DATA_COPIED_TO_STAGED, BLACK_MODEL_DATA_COPIED_TO_STAGED),
+        nextState(stateMachine, BLACK_MODEL.event(DATA_COPIED_TO_STAGED_EVENT),
+                  modelStates(DATA_COPIED_TO_STAGED, DATA_COPIED_TO_STAGED),
                   stateHistory);
 
 
-        nextState(stateMachine, VAR_MODEL_ETL_START_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_ETL_START, BLACK_MODEL_DATA_COPIED_TO_STAGED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(ETL_START_EVENT),
+                  modelStates(ETL_START, DATA_COPIED_TO_STAGED), stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_ETL_SENT_TO_DRP_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_ETL_SENT_TO_DRP, BLACK_MODEL_DATA_COPIED_TO_STAGED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(ETL_SENT_TO_DRP_EVENT),
+                  modelStates(ETL_SENT_TO_DRP, DATA_COPIED_TO_STAGED), stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_ETL_ACCEPTED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_ETL_ACCEPTED, BLACK_MODEL_DATA_COPIED_TO_STAGED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(ETL_ACCEPTED_EVENT),
+                  modelStates(ETL_ACCEPTED, DATA_COPIED_TO_STAGED), stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_ETL_COMPLETED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_ETL_COMPLETED, BLACK_MODEL_DATA_COPIED_TO_STAGED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(ETL_COMPLETED_EVENT),
+                  modelStates(ETL_COMPLETED, DATA_COPIED_TO_STAGED), stateHistory);
 
 
-        nextState(stateMachine, BLACK_MODEL_ETL_START_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_ETL_COMPLETED, BLACK_MODEL_ETL_START), stateHistory);
+        nextState(stateMachine, BLACK_MODEL.event(ETL_START_EVENT),
+                  modelStates(ETL_COMPLETED, ETL_START), stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_ETL_SENT_TO_DRP_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_ETL_COMPLETED, BLACK_MODEL_ETL_SENT_TO_DRP), stateHistory);
+        nextState(stateMachine, BLACK_MODEL.event(ETL_SENT_TO_DRP_EVENT),
+                  modelStates(ETL_COMPLETED, ETL_SENT_TO_DRP), stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_ETL_ACCEPTED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_ETL_COMPLETED, BLACK_MODEL_ETL_ACCEPTED), stateHistory);
+        nextState(stateMachine, BLACK_MODEL.event(ETL_ACCEPTED_EVENT),
+                  modelStates(ETL_COMPLETED, ETL_ACCEPTED), stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_ETL_COMPLETED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_ETL_COMPLETED, BLACK_MODEL_ETL_COMPLETED), stateHistory);
+        nextState(stateMachine, BLACK_MODEL.event(ETL_COMPLETED_EVENT),
+                  modelStates(ETL_COMPLETED, ETL_COMPLETED), stateHistory);
 
 
-        nextState(stateMachine, VAR_MODEL_CALCULATION_START_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_START, BLACK_MODEL_ETL_COMPLETED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(CALCULATION_START_EVENT),
+                  modelStates(CALCULATION_START, ETL_COMPLETED), stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_CALCULATION_SENT_TO_DRP_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_SENT_TO_DRP, BLACK_MODEL_ETL_COMPLETED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(CALCULATION_SENT_TO_DRP_EVENT),
+                  modelStates(CALCULATION_SENT_TO_DRP, ETL_COMPLETED), stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_CALCULATION_ACCEPTED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_ACCEPTED, BLACK_MODEL_ETL_COMPLETED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(CALCULATION_ACCEPTED_EVENT),
+                  modelStates(CALCULATION_ACCEPTED, ETL_COMPLETED), stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_CALCULATION_COMPLETED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_COMPLETED, BLACK_MODEL_ETL_COMPLETED), stateHistory);
+        nextState(stateMachine, VAR_MODEL.event(CALCULATION_COMPLETED_EVENT),
+                  modelStates(CALCULATION_COMPLETED, ETL_COMPLETED), stateHistory);
 
 
-        nextState(stateMachine, BLACK_MODEL_CALCULATION_START_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_COMPLETED, BLACK_MODEL_CALCULATION_START),
+        nextState(stateMachine, BLACK_MODEL.event(CALCULATION_START_EVENT),
+                  modelStates(CALCULATION_COMPLETED, CALCULATION_START),
                   stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_CALCULATION_SENT_TO_DRP_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_COMPLETED, BLACK_MODEL_CALCULATION_SENT_TO_DRP),
+        nextState(stateMachine, BLACK_MODEL.event(CALCULATION_SENT_TO_DRP_EVENT),
+                  modelStates(CALCULATION_COMPLETED, CALCULATION_SENT_TO_DRP),
                   stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_CALCULATION_ACCEPTED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_COMPLETED, BLACK_MODEL_CALCULATION_ACCEPTED),
+        nextState(stateMachine, BLACK_MODEL.event(CALCULATION_ACCEPTED_EVENT),
+                  modelStates(CALCULATION_COMPLETED, CALCULATION_ACCEPTED),
                   stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_CALCULATION_COMPLETED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_COMPLETED, BLACK_MODEL_CALCULATION_COMPLETED),
+        nextState(stateMachine, BLACK_MODEL.event(CALCULATION_COMPLETED_EVENT),
+                  modelStates(CALCULATION_COMPLETED, CALCULATION_COMPLETED),
                   stateHistory);
 
 
-        nextState(stateMachine, VAR_MODEL_REVERSED_ETL_START_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_REVERSED_ETL_START, BLACK_MODEL_CALCULATION_COMPLETED),
+        nextState(stateMachine, VAR_MODEL.event(REVERSED_ETL_START_EVENT),
+                  modelStates(REVERSED_ETL_START, CALCULATION_COMPLETED),
                   stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_REVERSED_ETL_SENT_TO_DRP_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_REVERSED_ETL_SENT_TO_DRP, BLACK_MODEL_CALCULATION_COMPLETED),
+        nextState(stateMachine, VAR_MODEL.event(REVERSED_ETL_SENT_TO_DRP_EVENT),
+                  modelStates(REVERSED_ETL_SENT_TO_DRP, CALCULATION_COMPLETED),
                   stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_REVERSED_ETL_ACCEPTED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_REVERSED_ETL_ACCEPTED, BLACK_MODEL_CALCULATION_COMPLETED),
+        nextState(stateMachine, VAR_MODEL.event(REVERSED_ETL_ACCEPTED_EVENT),
+                  modelStates(REVERSED_ETL_ACCEPTED, CALCULATION_COMPLETED),
                   stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_REVERSED_ETL_COMPLETED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_REVERSED_ETL_COMPLETED, BLACK_MODEL_CALCULATION_COMPLETED),
+        nextState(stateMachine, VAR_MODEL.event(REVERSED_ETL_COMPLETED_EVENT),
+                  modelStates(REVERSED_ETL_COMPLETED, CALCULATION_COMPLETED),
                   stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_DATA_COPIED_FROM_STAGED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_DATA_COPIED_FROM_STAGED, BLACK_MODEL_CALCULATION_COMPLETED),
+        nextState(stateMachine, VAR_MODEL.event(DATA_COPIED_FROM_STAGED_EVENT),
+                  modelStates(DATA_COPIED_FROM_STAGED, CALCULATION_COMPLETED),
                   stateHistory);
 
-        nextState(stateMachine, VAR_MODEL_CALCULATION_FINISHED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_FINISHED, BLACK_MODEL_CALCULATION_COMPLETED),
+        nextState(stateMachine, VAR_MODEL.event(CALCULATION_FINISHED_EVENT),
+                  modelStates(CALCULATION_FINISHED, CALCULATION_COMPLETED),
                   stateHistory);
 
 
-        nextState(stateMachine, BLACK_MODEL_REVERSED_ETL_START_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_FINISHED, BLACK_MODEL_REVERSED_ETL_START),
+        nextState(stateMachine, BLACK_MODEL.event(REVERSED_ETL_START_EVENT),
+                  modelStates(CALCULATION_FINISHED, REVERSED_ETL_START),
                   stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_FINISHED, BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP),
+        nextState(stateMachine, BLACK_MODEL.event(REVERSED_ETL_SENT_TO_DRP_EVENT),
+                  modelStates(CALCULATION_FINISHED, REVERSED_ETL_SENT_TO_DRP),
                   stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_REVERSED_ETL_ACCEPTED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_FINISHED, BLACK_MODEL_REVERSED_ETL_ACCEPTED),
+        nextState(stateMachine, BLACK_MODEL.event(REVERSED_ETL_ACCEPTED_EVENT),
+                  modelStates(CALCULATION_FINISHED, REVERSED_ETL_ACCEPTED),
                   stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_REVERSED_ETL_COMPLETED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_FINISHED, BLACK_MODEL_REVERSED_ETL_COMPLETED),
+        nextState(stateMachine, BLACK_MODEL.event(REVERSED_ETL_COMPLETED_EVENT),
+                  modelStates(CALCULATION_FINISHED, REVERSED_ETL_COMPLETED),
                   stateHistory);
 
-        nextState(stateMachine, BLACK_MODEL_DATA_COPIED_FROM_STAGED_EVENT,
-                  of(CALCULATION_STARTED, VAR_MODEL_CALCULATION_FINISHED, BLACK_MODEL_DATA_COPIED_FROM_STAGED),
+        nextState(stateMachine, BLACK_MODEL.event(DATA_COPIED_FROM_STAGED_EVENT),
+                  modelStates(CALCULATION_FINISHED, DATA_COPIED_FROM_STAGED),
                   stateHistory);
 
         stateHistory.addFirst(new String[]{
-                CALCULATION_STARTED.name(),
-                VAR_MODEL_CALCULATION_FINISHED.name(),
-                BLACK_MODEL_CALCULATION_FINISHED.name()
+                VssdvStates.CALCULATION_STARTED.name(),
+                VAR_MODEL.state(CALCULATION_FINISHED).name(),
+                BLACK_MODEL.state(CALCULATION_FINISHED).name()
         });
-        nextState(stateMachine, BLACK_MODEL_CALCULATION_FINISHED_EVENT, of(VSSDV_CALCULATION_STARTED), stateHistory);
+        nextState(stateMachine, BLACK_MODEL.event(CALCULATION_FINISHED_EVENT), of(VSSDV_CALCULATION_STARTED),
+                  stateHistory);
 
         nextState(stateMachine, VSSDV_DATA_PREPARED_EVENT, of(VSSDV_DATA_PREPARED), stateHistory);
         nextState(stateMachine, VSSDV_DATA_COPIED_TO_STAGED_EVENT, of(VSSDV_DATA_COPIED_TO_STAGED), stateHistory);
@@ -230,11 +241,10 @@ class VssdvStateMachineApplicationTest {
     void testEventNotAccepted() {
         var stateMachine = stateMachineService.acquireStateMachine(CALCULATION_UID_1.toString());
 
-        assertThat(stateMachine.getState().getIds()).containsExactlyInAnyOrder(CALCULATION_STARTED,
-                                                                               VAR_MODEL_CALCULATION_STARTED,
-                                                                               BLACK_MODEL_CALCULATION_STARTED);
+        assertThat(stateMachine.getState().getIds()).containsExactlyInAnyOrderElementsOf(
+                modelStates(VssdvModelStates.CALCULATION_STARTED, VssdvModelStates.CALCULATION_STARTED));
 
-        var message = just(withPayload(VssdvEvents.VAR_MODEL_ETL_COMPLETED_EVENT).build());
+        var message = just(withPayload(VAR_MODEL.event(ETL_COMPLETED_EVENT)).build());
         var result = stateMachine.sendEvent(message).blockLast();
 
         assertThat(result).isNotNull();
@@ -242,6 +252,15 @@ class VssdvStateMachineApplicationTest {
         assertThat(stateMachine.getState().getId()).isEqualTo(VssdvStates.CALCULATION_STARTED);
     }
 
+    // Главное состояние и состояния регионов моделей
+    @NotNull
+    private static List<VssdvStates> modelStates(
+            @NotNull VssdvModelStates varModelState,
+            @NotNull VssdvModelStates blackModelState
+    ) {
+        return of(VssdvStates.CALCULATION_STARTED, VAR_MODEL.state(varModelState), BLACK_MODEL.state(blackModelState));
+    }
+
     private void nextState(
             @NotNull StateMachine<VssdvStates, VssdvEvents> stateMachine,
             @NotNull VssdvEvents event,
@@ -256,14 +275,17 @@ class VssdvStateMachineApplicationTest {
         assertThat(stateMachine.getState().getIds()).containsExactlyInAnyOrder(
                 expectedStates.toArray(VssdvStates[]::new));
 
-        stateHistory.addFirst(expectedStates.stream().map(Enum::name).toArray(String[]::new));
+        stateHistory.addFirst(expectedStates.stream().map(VssdvStates::name).toArray(String[]::new));
         final var states = calculationStatusRepository
-                .getCalculationLastState(fromString(stateMachine.getId()), unpaged());
+                .getCalculationLastStatus(fromString(stateMachine.getId()), unpaged())
+                .stream()
+                .map(stateMachinePersist::states)
+                .collect(toList());
 
         assertThat(states).hasSize(stateHistory.size());
         for (int i = 0; i < states.size(); i++) {
             var state = states.get(i);
-            assertThat(state.split(DELIMITER)).containsExactlyInAnyOrder(stateHistory.get(i));
+            assertThat(state).extracting(VssdvStates::name).containsExactlyInAnyOrder(stateHistory.get(i));
         }
     }
 
@@ -0,0 +1,304 @@
+package ru.romanow.state.machine.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import ru.romanow.state.machine.StateMachineApplication;
+import ru.romanow.state.machine.repostitory.CalculationRepository;
+import ru.romanow.state.machine.repostitory.CalculationStatusRepository;
+import ru.romanow.state.machine.service.cashflow.CashFlowCustomStateMachinePersist;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.springframework.data.domain.Pageable.unpaged;
+import static ru.romanow.state.machine.domain.enums.CalculationType.CASH_FLOW;
+import static ru.romanow.state.machine.utils.CalculationBuilder.buildCalculation;
+
+/**
+ * Сценарий из README под нагрузкой: несколько экземпляров приложения над одной БД продвигают одни и те же расчеты
+ * Cash Flow через {@code next-state}. Экземпляры запускаются в этом же процессе на случайных портах, у каждого свой
+ * реестр State Machine и свои блокировки, общая только БД.
+ * <ul>
+ *     <li>{@code uniform} – запросы равномерно по всем расчетам, конкуренция за один расчет редкая;</li>
+ *     <li>{@code hot} – запросы идут в окно из {@code load.hot-keys} расчетов, которое сдвигается по мере их
+ *     завершения: один расчет одновременно продвигают все узлы.</li>
+ * </ul>
+ * Каждый принятый переход ({@code 200}) должен быть в истории ровно один раз: переход, о котором клиенту ответили,
+ * но которого нет в {@code calculation_status} – потерянный, одно и то же состояние дважды в ответах или в истории
+ * – дублированный. Ошибки (например, конфликт версий между узлами) допустимы и считаются отдельно.
+ * <p>
+ * Запуск: {@code ./gradlew loadTest}, по умолчанию Postgres в Testcontainers, с {@code -Pload.datasource.url=...}
+ * – существующая БД. Параметры: {@code load.nodes}, {@code load.calculations}, {@code load.steps} (переходов
+ * на расчет, не больше 16), {@code load.clients}, {@code load.hot-keys}, {@code load.engine},
+ * {@code load.restore-policy}, {@code load.web} ({@code servlet} или {@code reactive}).
+ * <p>
+ * Пропускная способность servlet и reactive стека близка – ее ограничивают почтовые ящики и запись в БД. Разница
+ * в потоках: при сотнях одновременных запросов пул Tomcat вырастает в несколько раз и сжимается не сразу, Netty
+ * обслуживает все соединения несколькими event loop.
+ */
+@Tag("load")
+class MultiNodeLoadTest {
+    private static final Logger logger = getLogger(MultiNodeLoadTest.class);
+
+    private static final String POSTGRES_IMAGE = "postgres:13-alpine";
+    private static final String DATABASE_NAME = "services";
+    private static final int CASH_FLOW_TRANSITIONS = 16;
+
+    private static final int NODES = Integer.getInteger("load.nodes", 2);
+    private static final int CALCULATIONS = Integer.getInteger("load.calculations", 200);
+    private static final int STEPS = Math.min(Integer.getInteger("load.steps", CASH_FLOW_TRANSITIONS),
+                                              CASH_FLOW_TRANSITIONS);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 32);
+    private static final int HOT_KEYS = Integer.getInteger("load.hot-keys", 4);
+    private static final String WEB = System.getProperty("load.web", "servlet");
+
+    private static PostgreSQLContainer<?> postgres;
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private static final List<URI> baseUris = new ArrayList<>();
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startNodes() {
+        var url = System.getProperty("load.datasource.url");
+        var username = System.getProperty("load.datasource.username", "program");
+        var password = System.getProperty("load.datasource.password", "test");
+        if (url == null) {
+            postgres = new PostgreSQLContainer<>(POSTGRES_IMAGE)
+                    .withUsername(username)
+                    .withPassword(password)
+                    .withDatabaseName(DATABASE_NAME);
+            postgres.start();
+            url = postgres.getJdbcUrl();
+        }
+
+        // Узлы поднимаются по очереди: схему создает первый, остальные стартуют на готовой
+        for (int i = 0; i < NODES; i++) {
+            final var node = new SpringApplicationBuilder(StateMachineApplication.class)
+                    .properties(Map.of(
+                            "server.port", "0",
+                            "spring.datasource.url", url,
+                            "spring.datasource.username", username,
+                            "spring.datasource.password", password,
+                            "state-machine.engine", System.getProperty("load.engine", "spring"),
+                            "state-machine.restore-policy", System.getProperty("load.restore-policy", "version"),
+                            "spring.main.web-application-type", WEB))
+                    .initializers(context -> {
+                        context.getBeanFactory().registerSingleton(
+                                TestClassesExcludeFilter.class.getName(), new TestClassesExcludeFilter());
+                        // В classpath тестов и Tomcat, и Netty: без явной фабрики reactive stack поднимается на Tomcat
+                        if ("reactive".equals(WEB)) {
+                            ((GenericApplicationContext) context).registerBean(NettyReactiveWebServerFactory.class);
+                        }
+                    })
+                    .run();
+            nodes.add(node);
+            final int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+            baseUris.add(URI.create("http://localhost:" + port + "/api/v1/calculation/cashflow/next-state/"));
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "uniform", "hot" })
+    void load(String keys)
+            throws InterruptedException {
+        final var calculations = seedCalculations();
+        final var plan = "hot".equals(keys) ? hotPlan(calculations) : uniformPlan(calculations);
+
+        final var cursor = new AtomicInteger();
+        final var errors = new LongAdder();
+        final var latencies = new ConcurrentLinkedQueue<long[]>();
+        final Map<UUID, List<String>> accepted = new ConcurrentHashMap<>();
+        calculations.forEach(uid -> accepted.put(uid, new CopyOnWriteArrayList<>()));
+
+        final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        final long start = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            final int client = c;
+            clients.execute(() -> {
+                final var local = new long[plan.size()];
+                int count = 0;
+                int i;
+                while ((i = cursor.getAndIncrement()) < plan.size()) {
+                    // Соседние запросы клиента идут на разные узлы, как за балансировщиком
+                    final var uid = plan.get(i);
+                    final var uri = baseUris.get((client + i) % baseUris.size()).resolve(uid.toString());
+                    final long sent = System.nanoTime();
+                    final var states = nextState(uri);
+                    local[count++] = System.nanoTime() - sent;
+                    if (states != null) {
+                        accepted.get(uid).addAll(states);
+                    } else {
+                        errors.increment();
+                    }
+                }
+                latencies.add(Arrays.copyOf(local, count));
+            });
+        }
+        clients.shutdown();
+        assertThat(clients.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        final long elapsed = System.nanoTime() - start;
+
+        final var result = verify(accepted);
+        final var sorted = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        logger.info("Load '{}': {} nodes, {} calculations x {} steps, {} clients: {} requests in {} ms, {} req/s, "
+                            + "latency p50 {} ms, p99 {} ms, p999 {} ms; errors {}, lost {}, duplicated {}",
+                    keys, NODES, CALCULATIONS, STEPS, CLIENTS, sorted.length, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    sorted.length * 1_000_000_000L / elapsed, millis(sorted, 0.5), millis(sorted, 0.99),
+                    millis(sorted, 0.999), errors.sum(), result.lost, result.duplicated);
+
+        assertThat(result.lost).isZero();
+        assertThat(result.duplicated).isZero();
+    }
+
+    @NotNull
+    private List<UUID> seedCalculations() {
+        final var calculations = new ArrayList<UUID>(CALCULATIONS);
+        for (int i = 0; i < CALCULATIONS; i++) {
+            calculations.add(UUID.randomUUID());
+        }
+        nodes.get(0)
+             .getBean(CalculationRepository.class)
+             .saveAll(calculations.stream().map(uid -> buildCalculation(uid, CASH_FLOW)).collect(toList()));
+        return calculations;
+    }
+
+    // Каждый расчет STEPS раз в случайном порядке
+    @NotNull
+    private List<UUID> uniformPlan(@NotNull List<UUID> calculations) {
+        final var plan = new ArrayList<UUID>(calculations.size() * STEPS);
+        calculations.forEach(uid -> plan.addAll(Collections.nCopies(STEPS, uid)));
+        Collections.shuffle(plan, new Random(42));
+        return plan;
+    }
+
+    // Окна по HOT_KEYS расчетов: все запросы окна перемешаны, следующее окно начинается после предыдущего
+    @NotNull
+    private List<UUID> hotPlan(@NotNull List<UUID> calculations) {
+        final var random = new Random(42);
+        final var plan = new ArrayList<UUID>(calculations.size() * STEPS);
+        for (int from = 0; from < calculations.size(); from += HOT_KEYS) {
+            final var window = new ArrayList<UUID>(HOT_KEYS * STEPS);
+            calculations.subList(from, Math.min(from + HOT_KEYS, calculations.size()))
+                        .forEach(uid -> window.addAll(Collections.nCopies(STEPS, uid)));
+            Collections.shuffle(window, random);
+            plan.addAll(window);
+        }
+        return plan;
+    }
+
+    // Состояния после перехода или null, если переход не принят
+    private List<String> nextState(@NotNull URI uri) {
+        try {
+            final var response = httpClient.send(HttpRequest.newBuilder(uri).GET().build(),
+                                                 HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            final var body = response.body();
+            return Arrays.stream(body.substring(1, body.length() - 1).split(","))
+                         .map(state -> state.replace("\"", "").trim())
+                         .collect(toList());
+        } catch (Exception exception) {
+            return null;
+        }
+    }
+
+    // Ответы клиенту против истории переходов в БД: Cash Flow линейна, каждое состояние проходится один раз
+    @NotNull
+    private VerifyResult verify(@NotNull Map<UUID, List<String>> accepted) {
+        final var statusRepository = nodes.get(0).getBean(CalculationStatusRepository.class);
+        final var stateMachinePersist = nodes.get(0).getBean(CashFlowCustomStateMachinePersist.class);
+
+        final var result = new VerifyResult();
+        accepted.forEach((uid, states) -> {
+            final var history = statusRepository
+                    .getCalculationLastStatus(uid, unpaged())
+                    .stream()
+                    .flatMap(status -> stateMachinePersist.states(status).stream())
+                    .map(Enum::name)
+                    .collect(toList());
+
+            final var remaining = new HashMap<String, Integer>();
+            history.forEach(state -> remaining.merge(state, 1, Integer::sum));
+            result.duplicated += history.size() - remaining.size();
+            result.duplicated += states.size() - states.stream().distinct().count();
+            for (var state : states) {
+                if (remaining.merge(state, -1, Integer::sum) < 0) {
+                    result.lost++;
+                }
+            }
+        });
+        return result;
+    }
+
+    @NotNull
+    private static String millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        final int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return String.format("%.2f", sorted[Math.max(index, 0)] / 1_000_000d);
+    }
+
+    // Как в @SpringBootTest: конфигурации других тестов из classpath в узлы не попадают
+    private static class TestClassesExcludeFilter
+            extends TypeExcludeFilter {
+
+        @Override
+        public boolean match(@NotNull MetadataReader metadataReader,
+                             @NotNull MetadataReaderFactory metadataReaderFactory) {
+            final var enclosingClass = metadataReader.getClassMetadata().getEnclosingClassName();
+            return (enclosingClass != null && enclosingClass.endsWith("Test")) ||
+                    metadataReader.getAnnotationMetadata().hasAnnotation(TestConfiguration.class.getName());
+        }
+    }
+
+    private static class VerifyResult {
+        private long lost;
+        private long duplicated;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.romanow.state.machine.statuses;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.Lifecycle;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.StateMachineEventResult.ResultType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.cashflow.CashFlowStates;
+import ru.romanow.state.machine.repostitory.CalculationRepository;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.messaging.support.MessageBuilder.withPayload;
+import static reactor.core.publisher.Mono.just;
+
+// Реестр на одну State Machine: каждый следующий расчет вытесняет из него предыдущий
+@ActiveProfiles("test")
+@SpringBootTest(properties = "state-machine.registry.max-size=1")
+@ContextConfiguration(classes = CashFlowStateMachineStatusTest.TestConfiguration.class)
+class CashFlowStateMachineRegistryTest {
+
+    @Autowired
+    private CashFlowStateMachineService cashFlowStateMachineService;
+
+    @Autowired
+    private CalculationRepository calculationRepository;
+
+    @Test
+    void testEvictedStateMachineStaysRunning() {
+        when(calculationRepository.findIdByUid(any(UUID.class)))
+                .thenReturn(Optional.of(1L));
+
+        for (int i = 0; i < 10; i++) {
+            // Пока первый расчет получил State Machine, но еще не отправил событие, второй вытесняет ее из реестра
+            var stateMachine = cashFlowStateMachineService.acquireStateMachine(UUID.randomUUID().toString());
+            cashFlowStateMachineService.acquireStateMachine(UUID.randomUUID().toString());
+            awaitEviction();
+            assertThat(cashFlowStateMachineService.registrySize()).isEqualTo(1);
+
+            // Выданная acquire State Machine остается в работе, хотя реестр ее уже вытеснил
+            assertThat(((Lifecycle) stateMachine).isRunning()).isTrue();
+            assertThat(sendEvent(stateMachine, CashFlowEvents.DATA_PREPARED_EVENT)).isEqualTo(ResultType.ACCEPTED);
+            assertThat(stateMachine.getState().getId()).isEqualTo(CashFlowStates.DATA_PREPARED);
+        }
+    }
+
+    // Caffeine вытесняет записи и вызывает removal listener в ForkJoinPool.commonPool()
+    private static void awaitEviction() {
+        assertThat(ForkJoinPool.commonPool().awaitQuiescence(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static ResultType sendEvent(StateMachine<CashFlowStates, CashFlowEvents> stateMachine,
+                                        CashFlowEvents event) {
+        return stateMachine.sendEvent(just(withPayload(event).build())).blockLast().getResultType();
+    }
+}
@@ -1,9 +1,11 @@
 package ru.romanow.state.machine.statuses;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -15,25 +17,36 @@ import org.springframework.statemachine.config.StateMachineFactory;
 import org.springframework.statemachine.test.StateMachineTestPlanBuilder;
 import org.springframework.test.context.ActiveProfiles;
 import ru.romanow.state.machine.config.StateMachineConfiguration;
+import ru.romanow.state.machine.config.StateMachineProperties;
+import ru.romanow.state.machine.domain.CalculationStatus;
+import ru.romanow.state.machine.models.CalculationStatusRecord;
 import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
 import ru.romanow.state.machine.models.cashflow.CashFlowStates;
+import ru.romanow.state.machine.repostitory.CalculationCurrentStateRepository;
 import ru.romanow.state.machine.repostitory.CalculationRepository;
 import ru.romanow.state.machine.repostitory.CalculationStatusRepository;
 import ru.romanow.state.machine.service.CalculationService;
 import ru.romanow.state.machine.service.CalculationServiceImpl;
 import ru.romanow.state.machine.service.CalculationStatusService;
 import ru.romanow.state.machine.service.CalculationStatusServiceImpl;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.TransitionAuditLog;
 import ru.romanow.state.machine.service.cashflow.CashFlowCustomStateMachinePersist;
 import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
 import ru.romanow.state.machine.service.vssdv.VssdvCustomStateMachinePersist;
 import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static ru.romanow.state.machine.domain.enums.CalculationType.CASH_FLOW;
-import static ru.romanow.state.machine.utils.CalculationBuilder.buildCalculation;
 
 @ActiveProfiles("test")
 @SpringBootTest
@@ -48,14 +61,15 @@ class CashFlowStateMachineStatusTest {
     @Autowired
     protected CalculationRepository calculationRepository;
 
+    @Autowired
+    private CalculationCurrentStateRepository calculationCurrentStateRepository;
+
     @Test
     void testSuccess()
             throws Exception {
         var machineId = UUID.randomUUID();
-        when(calculationRepository.findByUid(machineId))
-                .thenReturn(Optional.of(buildCalculation(machineId, CASH_FLOW)));
-        when(calculationStatusRepository.getCalculationLastState(eq(machineId), any(Pageable.class)))
-                .thenReturn(List.of());
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
 
         var stateMachine = cashFlowStateMachineService
                 .acquireStateMachine(machineId.toString());
@@ -161,16 +175,18 @@ class CashFlowStateMachineStatusTest {
                 .build()
                 .test();
         // @formatter:on
+
+        // Id расчета читается один раз на все переходы, сама сущность не загружается
+        verify(calculationRepository).findIdByUid(machineId);
+        verify(calculationRepository, never()).findByUid(any());
     }
 
     @Test
     void testError()
             throws Exception {
         var machineId = UUID.randomUUID();
-        when(calculationRepository.findByUid(machineId))
-                .thenReturn(Optional.of(buildCalculation(machineId, CASH_FLOW)));
-        when(calculationStatusRepository.getCalculationLastState(eq(machineId), any(Pageable.class)))
-                .thenReturn(List.of());
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
 
         var stateMachine = cashFlowStateMachineService
                 .acquireStateMachine(machineId.toString());
@@ -206,43 +222,134 @@ class CashFlowStateMachineStatusTest {
                 .build()
                 .test();
         // @formatter:on
+
+        // Завершенная State Machine не должна оставаться в реестре
+        assertThat(cashFlowStateMachineService.registrySize()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSendEvents() {
+        var machineId = UUID.randomUUID();
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
+
+        var result = cashFlowStateMachineService.sendEvents(machineId.toString(), List.of(
+                CashFlowEvents.DATA_PREPARED_EVENT,
+                CashFlowEvents.DATA_COPIED_TO_STAGED_EVENT,
+                CashFlowEvents.CALCULATION_START_EVENT,
+                CashFlowEvents.ETL_START_EVENT));
+
+        // События применяются до первого непринятого
+        assertThat(result.getAccepted()).containsExactly(
+                CashFlowEvents.DATA_PREPARED_EVENT.name(), CashFlowEvents.DATA_COPIED_TO_STAGED_EVENT.name());
+        assertThat(result.getRejected()).isEqualTo(CashFlowEvents.CALCULATION_START_EVENT.name());
+        assertThat(result.getStates()).containsExactly(CashFlowStates.DATA_COPIED_TO_STAGED.name());
+
+        // История переходов пишется одной пачкой
+        var captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(calculationStatusRepository, never()).save(any());
+        verify(calculationStatusRepository).saveAll(captor.capture());
+        assertThat((Iterable<CalculationStatus>) captor.getValue())
+                .extracting(CalculationStatus::getStatus, CalculationStatus::getStateCode, CalculationStatus::getVersion)
+                .containsExactly(tuple(null, stateCode(CashFlowStates.DATA_PREPARED), 1L),
+                                 tuple(null, stateCode(CashFlowStates.DATA_COPIED_TO_STAGED), 2L));
+
+        // Текущее состояние обновляется один раз, последней записью пачки
+        verify(calculationCurrentStateRepository).upsert(any(), any(), any(), any(), anyLong());
+        verify(calculationCurrentStateRepository).upsert(
+                eq(machineId), any(), isNull(), aryEq(stateCode(CashFlowStates.DATA_COPIED_TO_STAGED)), eq(2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRestoreLegacyStatus() {
+        var machineId = UUID.randomUUID();
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
+        // Запись в старом формате: имена состояний вместо state_code
+        when(calculationStatusRepository.getCalculationLastStatus(eq(machineId), any(Pageable.class)))
+                .thenReturn(List.of(new CalculationStatusRecord(machineId, CashFlowStates.ETL_START.name(), 4L)));
+
+        var result = cashFlowStateMachineService.sendEvents(
+                machineId.toString(), List.of(CashFlowEvents.ETL_SENT_TO_DRP_EVENT));
+
+        assertThat(result.getAccepted()).containsExactly(CashFlowEvents.ETL_SENT_TO_DRP_EVENT.name());
+        assertThat(result.getStates()).containsExactly(CashFlowStates.ETL_SENT_TO_DRP.name());
+
+        // Новая запись пишется уже упакованной
+        var captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(calculationStatusRepository).saveAll(captor.capture());
+        assertThat((Iterable<CalculationStatus>) captor.getValue())
+                .extracting(CalculationStatus::getStatus, CalculationStatus::getStateCode, CalculationStatus::getVersion)
+                .containsExactly(tuple(null, stateCode(CashFlowStates.ETL_SENT_TO_DRP), 5L));
+    }
+
+    // Состояние без регионов – один байт с кодом состояния
+    private static byte[] stateCode(CashFlowStates state) {
+        return new byte[] { (byte) state.code() };
     }
 
     @Configuration
     @MockBean(CalculationRepository.class)
     @MockBean(CalculationStatusRepository.class)
+    @MockBean(CalculationCurrentStateRepository.class)
     @Import(StateMachineConfiguration.class)
     static class TestConfiguration {
 
         @Bean
         @Autowired
-        public CalculationService calculationService(CalculationRepository calculationRepository) {
-            return new CalculationServiceImpl(calculationRepository);
+        public CalculationService calculationService(
+                CalculationRepository calculationRepository,
+                StateMachineProperties stateMachineProperties
+        ) {
+            return new CalculationServiceImpl(calculationRepository, stateMachineProperties);
         }
 
         @Bean
         @Autowired
         public CalculationStatusService calculationStatusService(
                 CalculationService calculationService,
-                CalculationStatusRepository calculationStatusRepository
+                CalculationStatusRepository calculationStatusRepository,
+                CalculationCurrentStateRepository calculationCurrentStateRepository
         ) {
-            return new CalculationStatusServiceImpl(calculationService, calculationStatusRepository);
+            return new CalculationStatusServiceImpl(
+                    calculationService, calculationStatusRepository, calculationCurrentStateRepository);
+        }
+
+        @Bean
+        public StateMachineMetrics stateMachineMetrics() {
+            return new StateMachineMetrics(new SimpleMeterRegistry());
+        }
+
+        @Bean
+        @Autowired
+        public TransitionAuditLog transitionAuditLog(StateMachineProperties stateMachineProperties) {
+            return new TransitionAuditLog(stateMachineProperties);
         }
 
         @Bean
         public CashFlowCustomStateMachinePersist cashFlowCustomStateMachinePersist(
-                CalculationStatusService calculationStatusService
+                CalculationStatusService calculationStatusService,
+                TransitionAuditLog transitionAuditLog,
+                StateMachineMetrics stateMachineMetrics
         ) {
-            return new CashFlowCustomStateMachinePersist(calculationStatusService);
+            return new CashFlowCustomStateMachinePersist(
+                    calculationStatusService, transitionAuditLog, stateMachineMetrics);
         }
 
         @Bean
         @Autowired
         public CashFlowStateMachineService cashFlowStateMachineService(
                 CashFlowCustomStateMachinePersist cashFlowCustomStateMachinePersist,
-                StateMachineFactory<CashFlowStates, CashFlowEvents> stateMachineFactory
+                StateMachineFactory<CashFlowStates, CashFlowEvents> stateMachineFactory,
+                StateMachineProperties stateMachineProperties,
+                StateMachineMetrics stateMachineMetrics
         ) {
-            return new CashFlowStateMachineService(cashFlowCustomStateMachinePersist, stateMachineFactory);
+            return new CashFlowStateMachineService(cashFlowCustomStateMachinePersist,
+                                                   stateMachineFactory,
+                                                   stateMachineProperties,
+                                                   stateMachineMetrics);
         }
 
         @Bean
@@ -0,0 +1,110 @@
+package ru.romanow.state.machine.statuses;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.Message;
+import org.springframework.statemachine.StateContext;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.StateMachineEventResult.ResultType;
+import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.state.StateListenerAdapter;
+import org.springframework.statemachine.support.StateMachineInterceptorAdapter;
+import org.springframework.statemachine.transition.Transition;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import ru.romanow.state.machine.models.cashflow.CashFlowEvents;
+import ru.romanow.state.machine.models.cashflow.CashFlowStates;
+import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
+import ru.romanow.state.machine.service.table.TableStateMachine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.messaging.support.MessageBuilder.withPayload;
+import static reactor.core.publisher.Mono.just;
+
+// Те же сценарии, что и для Spring State Machine, на табличном движке
+@ActiveProfiles("test")
+@SpringBootTest(properties = "state-machine.engine=table")
+@ContextConfiguration(classes = CashFlowStateMachineStatusTest.TestConfiguration.class)
+class CashFlowTableStateMachineStatusTest
+        extends CashFlowStateMachineStatusTest {
+
+    @Autowired
+    private CashFlowStateMachineService cashFlowStateMachineService;
+
+    @Test
+    void testTableEngine() {
+        var machineId = UUID.randomUUID();
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
+
+        var stateMachine = cashFlowStateMachineService.acquireStateMachine(machineId.toString());
+        assertThat(stateMachine).isInstanceOf(TableStateMachine.class);
+        assertThat(stateMachine.getState().getId()).isEqualTo(CashFlowStates.CALCULATION_STARTED);
+
+        // Одна и та же State Machine из реестра, переходы – по таблице
+        assertThat(sendEvent(stateMachine, CashFlowEvents.DATA_PREPARED_EVENT)).isEqualTo(ResultType.ACCEPTED);
+        assertThat(sendEvent(stateMachine, CashFlowEvents.ETL_START_EVENT)).isEqualTo(ResultType.DENIED);
+        assertThat(cashFlowStateMachineService.acquireStateMachine(machineId.toString())).isSameAs(stateMachine);
+        assertThat(stateMachine.getState().getId()).isEqualTo(CashFlowStates.DATA_PREPARED);
+    }
+
+    @Test
+    void testTableEngineInterceptors() {
+        var machineId = UUID.randomUUID();
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
+
+        var stateMachine = cashFlowStateMachineService.acquireStateMachine(machineId.toString());
+        var changes = new ArrayList<CashFlowStates>();
+        var entered = new ArrayList<CashFlowStates>();
+        stateMachine.getStateMachineAccessor().doWithAllRegions(access -> access.addStateMachineInterceptor(
+                new StateMachineInterceptorAdapter<>() {
+                    @Override
+                    public Message<CashFlowEvents> preEvent(Message<CashFlowEvents> message,
+                                                            StateMachine<CashFlowStates, CashFlowEvents> machine) {
+                        return message.getPayload() == CashFlowEvents.DATA_COPIED_TO_STAGED_EVENT ? null : message;
+                    }
+
+                    @Override
+                    public void postStateChange(State<CashFlowStates, CashFlowEvents> state,
+                                                Message<CashFlowEvents> message,
+                                                Transition<CashFlowStates, CashFlowEvents> transition,
+                                                StateMachine<CashFlowStates, CashFlowEvents> machine,
+                                                StateMachine<CashFlowStates, CashFlowEvents> rootStateMachine) {
+                        changes.add(state.getId());
+                    }
+                }));
+        stateMachine.getStates()
+                    .stream()
+                    .filter(state -> state.getId() == CashFlowStates.DATA_PREPARED)
+                    .findFirst()
+                    .orElseThrow()
+                    .addStateListener(new StateListenerAdapter<>() {
+                        @Override
+                        public void onEntry(StateContext<CashFlowStates, CashFlowEvents> context) {
+                            if (context.getStateMachine() == stateMachine) {
+                                entered.add(context.getTarget().getId());
+                            }
+                        }
+                    });
+
+        // Интерсептор отклоняет событие до перехода, listener состояния и postStateChange вызываются на переходе
+        assertThat(sendEvent(stateMachine, CashFlowEvents.DATA_PREPARED_EVENT)).isEqualTo(ResultType.ACCEPTED);
+        assertThat(sendEvent(stateMachine, CashFlowEvents.DATA_COPIED_TO_STAGED_EVENT))
+                .isEqualTo(ResultType.DENIED);
+        assertThat(stateMachine.getState().getId()).isEqualTo(CashFlowStates.DATA_PREPARED);
+        assertThat(changes).containsExactly(CashFlowStates.DATA_PREPARED);
+        assertThat(entered).containsExactly(CashFlowStates.DATA_PREPARED);
+    }
+
+    private static ResultType sendEvent(@NotNull StateMachine<CashFlowStates, CashFlowEvents> stateMachine,
+                                        @NotNull CashFlowEvents event) {
+        return stateMachine.sendEvent(just(withPayload(event).build())).blockLast().getResultType();
+    }
+}
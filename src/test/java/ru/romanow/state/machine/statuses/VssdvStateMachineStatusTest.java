@@ -1,6 +1,6 @@
 package ru.romanow.state.machine.statuses;
 
-import java.util.List;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Optional;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
@@ -10,35 +10,40 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
-import org.springframework.data.domain.Pageable;
 import org.springframework.statemachine.config.StateMachineFactory;
 import org.springframework.statemachine.test.StateMachineTestPlanBuilder;
 import org.springframework.test.context.ActiveProfiles;
 import ru.romanow.state.machine.config.StateMachineConfiguration;
+import ru.romanow.state.machine.config.StateMachineProperties;
 import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvModel;
 import ru.romanow.state.machine.models.vssdv.VssdvStates;
+import ru.romanow.state.machine.repostitory.CalculationCurrentStateRepository;
 import ru.romanow.state.machine.repostitory.CalculationRepository;
 import ru.romanow.state.machine.repostitory.CalculationStatusRepository;
 import ru.romanow.state.machine.service.CalculationService;
 import ru.romanow.state.machine.service.CalculationServiceImpl;
 import ru.romanow.state.machine.service.CalculationStatusService;
 import ru.romanow.state.machine.service.CalculationStatusServiceImpl;
+import ru.romanow.state.machine.service.StateMachineMetrics;
+import ru.romanow.state.machine.service.TransitionAuditLog;
 import ru.romanow.state.machine.service.cashflow.CashFlowCustomStateMachinePersist;
 import ru.romanow.state.machine.service.cashflow.CashFlowStateMachineService;
 import ru.romanow.state.machine.service.vssdv.VssdvCustomStateMachinePersist;
 import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
-import static ru.romanow.state.machine.domain.enums.CalculationType.VSSDV;
-import static ru.romanow.state.machine.utils.CalculationBuilder.buildCalculation;
+import static ru.romanow.state.machine.models.vssdv.VssdvModelEvents.*;
+import static ru.romanow.state.machine.models.vssdv.VssdvModelStates.*;
 
 @ActiveProfiles("test")
 @SpringBootTest
 class VssdvStateMachineStatusTest {
 
+    static final VssdvModel VAR_MODEL = VssdvModel.of("VAR_MODEL");
+    static final VssdvModel BLACK_MODEL = VssdvModel.of("BLACK_MODEL");
+
     @Autowired
     private CalculationStatusRepository calculationStatusRepository;
 
@@ -52,10 +57,8 @@ class VssdvStateMachineStatusTest {
     void testSuccess()
             throws Exception {
         var machineId = UUID.randomUUID();
-        when(calculationRepository.findByUid(machineId))
-                .thenReturn(Optional.of(buildCalculation(machineId, VSSDV)));
-        when(calculationStatusRepository.getCalculationLastState(eq(machineId), any(Pageable.class)))
-                .thenReturn(List.of());
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
 
         var stateMachine = cashFlowStateMachineService
                 .acquireStateMachine(machineId.toString());
@@ -67,235 +70,235 @@ class VssdvStateMachineStatusTest {
                 .stateMachine(stateMachine)
                 .step()
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_STARTED)
-                    .expectState(VssdvStates.BLACK_MODEL_CALCULATION_STARTED)
+                    .expectState(VAR_MODEL.state(CALCULATION_STARTED))
+                    .expectState(BLACK_MODEL.state(CALCULATION_STARTED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_DATA_PREPARED_EVENT)
+                    .sendEvent(VAR_MODEL.event(DATA_PREPARED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_DATA_PREPARED)
-                    .expectState(VssdvStates.BLACK_MODEL_CALCULATION_STARTED)
+                    .expectState(VAR_MODEL.state(DATA_PREPARED))
+                    .expectState(BLACK_MODEL.state(CALCULATION_STARTED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_DATA_PREPARED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(DATA_PREPARED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_DATA_PREPARED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_PREPARED)
+                    .expectState(VAR_MODEL.state(DATA_PREPARED))
+                    .expectState(BLACK_MODEL.state(DATA_PREPARED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_DATA_COPIED_TO_STAGED_EVENT)
+                    .sendEvent(VAR_MODEL.event(DATA_COPIED_TO_STAGED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_DATA_COPIED_TO_STAGED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_PREPARED)
+                    .expectState(VAR_MODEL.state(DATA_COPIED_TO_STAGED))
+                    .expectState(BLACK_MODEL.state(DATA_PREPARED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_DATA_COPIED_TO_STAGED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(DATA_COPIED_TO_STAGED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_DATA_COPIED_TO_STAGED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(DATA_COPIED_TO_STAGED))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_ETL_START_EVENT)
+                    .sendEvent(VAR_MODEL.event(ETL_START_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_ETL_START)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(ETL_START))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_ETL_SENT_TO_DRP_EVENT)
+                    .sendEvent(VAR_MODEL.event(ETL_SENT_TO_DRP_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_ETL_SENT_TO_DRP)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(ETL_SENT_TO_DRP))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_ETL_ACCEPTED_EVENT)
+                    .sendEvent(VAR_MODEL.event(ETL_ACCEPTED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_ETL_ACCEPTED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(ETL_ACCEPTED))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_ETL_COMPLETED_EVENT)
+                    .sendEvent(VAR_MODEL.event(ETL_COMPLETED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_ETL_COMPLETED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(ETL_COMPLETED))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_CALCULATION_START_EVENT)
+                    .sendEvent(VAR_MODEL.event(CALCULATION_START_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_START)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(CALCULATION_START))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_CALCULATION_SENT_TO_DRP_EVENT)
+                    .sendEvent(VAR_MODEL.event(CALCULATION_SENT_TO_DRP_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_SENT_TO_DRP)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(CALCULATION_SENT_TO_DRP))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_CALCULATION_ACCEPTED_EVENT)
+                    .sendEvent(VAR_MODEL.event(CALCULATION_ACCEPTED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_ACCEPTED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(CALCULATION_ACCEPTED))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_CALCULATION_COMPLETED_EVENT)
+                    .sendEvent(VAR_MODEL.event(CALCULATION_COMPLETED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_COMPLETED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_TO_STAGED)
+                    .expectState(VAR_MODEL.state(CALCULATION_COMPLETED))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_TO_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_ETL_START_EVENT)
+                    .sendEvent(BLACK_MODEL.event(ETL_START_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_COMPLETED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_START)
+                    .expectState(VAR_MODEL.state(CALCULATION_COMPLETED))
+                    .expectState(BLACK_MODEL.state(ETL_START))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_ETL_SENT_TO_DRP_EVENT)
+                    .sendEvent(BLACK_MODEL.event(ETL_SENT_TO_DRP_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_COMPLETED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_SENT_TO_DRP)
+                    .expectState(VAR_MODEL.state(CALCULATION_COMPLETED))
+                    .expectState(BLACK_MODEL.state(ETL_SENT_TO_DRP))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_ETL_ACCEPTED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(ETL_ACCEPTED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_COMPLETED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_ACCEPTED)
+                    .expectState(VAR_MODEL.state(CALCULATION_COMPLETED))
+                    .expectState(BLACK_MODEL.state(ETL_ACCEPTED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_ETL_COMPLETED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(ETL_COMPLETED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_COMPLETED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(CALCULATION_COMPLETED))
+                    .expectState(BLACK_MODEL.state(ETL_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_REVERSED_ETL_START_EVENT)
+                    .sendEvent(VAR_MODEL.event(REVERSED_ETL_START_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_REVERSED_ETL_START)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(REVERSED_ETL_START))
+                    .expectState(BLACK_MODEL.state(ETL_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_REVERSED_ETL_SENT_TO_DRP_EVENT)
+                    .sendEvent(VAR_MODEL.event(REVERSED_ETL_SENT_TO_DRP_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_REVERSED_ETL_SENT_TO_DRP)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(REVERSED_ETL_SENT_TO_DRP))
+                    .expectState(BLACK_MODEL.state(ETL_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_REVERSED_ETL_ACCEPTED_EVENT)
+                    .sendEvent(VAR_MODEL.event(REVERSED_ETL_ACCEPTED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_REVERSED_ETL_ACCEPTED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(REVERSED_ETL_ACCEPTED))
+                    .expectState(BLACK_MODEL.state(ETL_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_REVERSED_ETL_COMPLETED_EVENT)
+                    .sendEvent(VAR_MODEL.event(REVERSED_ETL_COMPLETED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_REVERSED_ETL_COMPLETED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(REVERSED_ETL_COMPLETED))
+                    .expectState(BLACK_MODEL.state(ETL_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_DATA_COPIED_FROM_STAGED_EVENT)
+                    .sendEvent(VAR_MODEL.event(DATA_COPIED_FROM_STAGED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_DATA_COPIED_FROM_STAGED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(DATA_COPIED_FROM_STAGED))
+                    .expectState(BLACK_MODEL.state(ETL_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_CALCULATION_FINISHED_EVENT)
+                    .sendEvent(VAR_MODEL.event(CALCULATION_FINISHED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(ETL_COMPLETED))
                 .and()
                 .step()
                     .sendEvent(VssdvEvents.VSSDV_DATA_COPIED_TO_STAGED_EVENT)
                     .expectStateChanged(0)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(ETL_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_CALCULATION_START_EVENT)
+                    .sendEvent(BLACK_MODEL.event(CALCULATION_START_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_CALCULATION_START)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(CALCULATION_START))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_CALCULATION_SENT_TO_DRP_EVENT)
+                    .sendEvent(BLACK_MODEL.event(CALCULATION_SENT_TO_DRP_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_CALCULATION_SENT_TO_DRP)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(CALCULATION_SENT_TO_DRP))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_CALCULATION_ACCEPTED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(CALCULATION_ACCEPTED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_CALCULATION_ACCEPTED)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(CALCULATION_ACCEPTED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_CALCULATION_COMPLETED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(CALCULATION_COMPLETED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_CALCULATION_COMPLETED)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(CALCULATION_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_REVERSED_ETL_START_EVENT)
+                    .sendEvent(BLACK_MODEL.event(REVERSED_ETL_START_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_REVERSED_ETL_START)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(REVERSED_ETL_START))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP_EVENT)
+                    .sendEvent(BLACK_MODEL.event(REVERSED_ETL_SENT_TO_DRP_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_REVERSED_ETL_SENT_TO_DRP)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(REVERSED_ETL_SENT_TO_DRP))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_REVERSED_ETL_ACCEPTED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(REVERSED_ETL_ACCEPTED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_REVERSED_ETL_ACCEPTED)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(REVERSED_ETL_ACCEPTED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_REVERSED_ETL_COMPLETED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(REVERSED_ETL_COMPLETED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_REVERSED_ETL_COMPLETED)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(REVERSED_ETL_COMPLETED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_DATA_COPIED_FROM_STAGED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(DATA_COPIED_FROM_STAGED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_FINISHED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_COPIED_FROM_STAGED)
+                    .expectState(VAR_MODEL.state(CALCULATION_FINISHED))
+                    .expectState(BLACK_MODEL.state(DATA_COPIED_FROM_STAGED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_CALCULATION_FINISHED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(CALCULATION_FINISHED_EVENT))
                     .expectStateChanged(2)
                     .expectState(VssdvStates.VSSDV_CALCULATION_STARTED)
                 .and()
@@ -398,10 +401,8 @@ class VssdvStateMachineStatusTest {
     void testError()
             throws Exception {
         var machineId = UUID.randomUUID();
-        when(calculationRepository.findByUid(machineId))
-                .thenReturn(Optional.of(buildCalculation(machineId, VSSDV)));
-        when(calculationStatusRepository.getCalculationLastState(eq(machineId), any(Pageable.class)))
-                .thenReturn(List.of());
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
 
         var stateMachine = cashFlowStateMachineService
                 .acquireStateMachine(machineId.toString());
@@ -413,22 +414,22 @@ class VssdvStateMachineStatusTest {
                 .stateMachine(stateMachine)
                 .step()
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_CALCULATION_STARTED)
-                    .expectState(VssdvStates.BLACK_MODEL_CALCULATION_STARTED)
+                    .expectState(VAR_MODEL.state(CALCULATION_STARTED))
+                    .expectState(BLACK_MODEL.state(CALCULATION_STARTED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_DATA_PREPARED_EVENT)
+                    .sendEvent(VAR_MODEL.event(DATA_PREPARED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_DATA_PREPARED)
-                    .expectState(VssdvStates.BLACK_MODEL_CALCULATION_STARTED)
+                    .expectState(VAR_MODEL.state(DATA_PREPARED))
+                    .expectState(BLACK_MODEL.state(CALCULATION_STARTED))
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.BLACK_MODEL_DATA_PREPARED_EVENT)
+                    .sendEvent(BLACK_MODEL.event(DATA_PREPARED_EVENT))
                     .expectStateChanged(1)
                     .expectState(VssdvStates.CALCULATION_STARTED)
-                    .expectState(VssdvStates.VAR_MODEL_DATA_PREPARED)
-                    .expectState(VssdvStates.BLACK_MODEL_DATA_PREPARED)
+                    .expectState(VAR_MODEL.state(DATA_PREPARED))
+                    .expectState(BLACK_MODEL.state(DATA_PREPARED))
                 .and()
                 .step()
                     .sendEvent(VssdvEvents.CALCULATION_ERROR_EVENT)
@@ -436,7 +437,7 @@ class VssdvStateMachineStatusTest {
                     .expectState(VssdvStates.CALCULATION_ERROR)
                 .and()
                 .step()
-                    .sendEvent(VssdvEvents.VAR_MODEL_ETL_START_EVENT)
+                    .sendEvent(VAR_MODEL.event(ETL_START_EVENT))
                     .expectEventNotAccepted(1)
                     .expectState(VssdvStates.CALCULATION_ERROR)
                 .and()
@@ -448,22 +449,28 @@ class VssdvStateMachineStatusTest {
     @Configuration
     @MockBean(CalculationRepository.class)
     @MockBean(CalculationStatusRepository.class)
+    @MockBean(CalculationCurrentStateRepository.class)
     @Import(StateMachineConfiguration.class)
     static class TestConfiguration {
 
         @Bean
         @Autowired
-        public CalculationService calculationService(CalculationRepository calculationRepository) {
-            return new CalculationServiceImpl(calculationRepository);
+        public CalculationService calculationService(
+                CalculationRepository calculationRepository,
+                StateMachineProperties stateMachineProperties
+        ) {
+            return new CalculationServiceImpl(calculationRepository, stateMachineProperties);
         }
 
         @Bean
         @Autowired
         public CalculationStatusService calculationStatusService(
                 CalculationService calculationService,
-                CalculationStatusRepository calculationStatusRepository
+                CalculationStatusRepository calculationStatusRepository,
+                CalculationCurrentStateRepository calculationCurrentStateRepository
         ) {
-            return new CalculationStatusServiceImpl(calculationService, calculationStatusRepository);
+            return new CalculationStatusServiceImpl(
+                    calculationService, calculationStatusRepository, calculationCurrentStateRepository);
         }
 
         @Bean
@@ -476,20 +483,37 @@ class VssdvStateMachineStatusTest {
             return mock(CashFlowStateMachineService.class);
         }
 
+        @Bean
+        public StateMachineMetrics stateMachineMetrics() {
+            return new StateMachineMetrics(new SimpleMeterRegistry());
+        }
+
+        @Bean
+        @Autowired
+        public TransitionAuditLog transitionAuditLog(StateMachineProperties stateMachineProperties) {
+            return new TransitionAuditLog(stateMachineProperties);
+        }
+
         @Bean
         public VssdvCustomStateMachinePersist vssdvCustomStateMachinePersist(
-                CalculationStatusService calculationStatusService
+                CalculationStatusService calculationStatusService,
+                TransitionAuditLog transitionAuditLog,
+                StateMachineMetrics stateMachineMetrics
         ) {
-            return new VssdvCustomStateMachinePersist(calculationStatusService);
+            return new VssdvCustomStateMachinePersist(
+                    calculationStatusService, transitionAuditLog, stateMachineMetrics);
         }
 
         @Bean
         @Autowired
         public VssdvStateMachineService vssdvStateMachineService(
                 VssdvCustomStateMachinePersist vssdvCustomStateMachinePersist,
-                StateMachineFactory<VssdvStates, VssdvEvents> stateMachineFactory
+                StateMachineFactory<VssdvStates, VssdvEvents> stateMachineFactory,
+                StateMachineProperties stateMachineProperties,
+                StateMachineMetrics stateMachineMetrics
         ) {
-            return new VssdvStateMachineService(vssdvCustomStateMachinePersist, stateMachineFactory);
+            return new VssdvStateMachineService(
+                    vssdvCustomStateMachinePersist, stateMachineFactory, stateMachineProperties, stateMachineMetrics);
         }
 
     }
@@ -0,0 +1,73 @@
+package ru.romanow.state.machine.statuses;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.StateMachineContext;
+import org.springframework.statemachine.StateMachineEventResult.ResultType;
+import org.springframework.statemachine.support.DefaultStateMachineContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import ru.romanow.state.machine.models.vssdv.VssdvEvents;
+import ru.romanow.state.machine.models.vssdv.VssdvStates;
+import ru.romanow.state.machine.service.table.TableStateMachine;
+import ru.romanow.state.machine.service.vssdv.VssdvStateMachineService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.messaging.support.MessageBuilder.withPayload;
+import static reactor.core.publisher.Mono.just;
+import static ru.romanow.state.machine.models.vssdv.VssdvModelEvents.*;
+import static ru.romanow.state.machine.models.vssdv.VssdvModelStates.*;
+
+// Те же сценарии, что и для Spring State Machine, на табличном движке
+@ActiveProfiles("test")
+@SpringBootTest(properties = "state-machine.engine=table")
+@ContextConfiguration(classes = VssdvStateMachineStatusTest.TestConfiguration.class)
+class VssdvTableStateMachineStatusTest
+        extends VssdvStateMachineStatusTest {
+
+    @Autowired
+    private VssdvStateMachineService vssdvStateMachineService;
+
+    @Test
+    void testTableEngine() {
+        var machineId = UUID.randomUUID();
+        when(calculationRepository.findIdByUid(machineId))
+                .thenReturn(Optional.of(1L));
+
+        var stateMachine = vssdvStateMachineService.acquireStateMachine(machineId.toString());
+        assertThat(stateMachine).isInstanceOf(TableStateMachine.class);
+        assertThat(stateMachine.getState().getIds()).containsExactly(
+                VssdvStates.CALCULATION_STARTED,
+                VAR_MODEL.state(CALCULATION_STARTED),
+                BLACK_MODEL.state(CALCULATION_STARTED));
+
+        // Восстановление регионов из дочерних контекстов, последний регион в конечном состоянии выполняет join
+        List<StateMachineContext<VssdvStates, VssdvEvents>> regions = List.of(
+                new DefaultStateMachineContext<>(VAR_MODEL.state(CALCULATION_FINISHED), null, null, null),
+                new DefaultStateMachineContext<>(BLACK_MODEL.state(DATA_COPIED_FROM_STAGED), null, null, null));
+        stateMachine.getStateMachineAccessor().doWithAllRegions(access -> access.resetStateMachineReactively(
+                new DefaultStateMachineContext<>(regions, VssdvStates.CALCULATION_STARTED, null, null, null, null,
+                                                 machineId.toString())).block());
+        assertThat(stateMachine.getState().getIds()).containsExactly(
+                VssdvStates.CALCULATION_STARTED,
+                VAR_MODEL.state(CALCULATION_FINISHED),
+                BLACK_MODEL.state(DATA_COPIED_FROM_STAGED));
+
+        assertThat(sendEvent(stateMachine, VAR_MODEL.event(DATA_PREPARED_EVENT))).isEqualTo(ResultType.DENIED);
+        assertThat(sendEvent(stateMachine, BLACK_MODEL.event(CALCULATION_FINISHED_EVENT)))
+                .isEqualTo(ResultType.ACCEPTED);
+        assertThat(stateMachine.getState().getIds()).containsExactly(VssdvStates.VSSDV_CALCULATION_STARTED);
+    }
+
+    private static ResultType sendEvent(@NotNull StateMachine<VssdvStates, VssdvEvents> stateMachine,
+                                        @NotNull VssdvEvents event) {
+        return stateMachine.sendEvent(just(withPayload(event).build())).blockLast().getResultType();
+    }
+}